@@ -0,0 +1,25 @@
+package me.justapie.lava.common.natives;
+
+import java.nio.file.OpenOption;
+import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.io.IOException;
+
+public class NativeLibraryIndexTool
+{
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: NativeLibraryIndexTool <natives directory> [output file]");
+            System.exit(1);
+        }
+        final Path nativesDirectory = Paths.get(args[0], new String[0]);
+        final Path output = (args.length > 1) ? Paths.get(args[1], new String[0]) : nativesDirectory.resolve("index");
+        final NativeLibraryIndex index = NativeLibraryIndex.scan(nativesDirectory);
+        try (final OutputStream stream = Files.newOutputStream(output, new OpenOption[0])) {
+            index.write(stream);
+        }
+        System.out.println("Wrote " + index.getEntries().size() + " entries to " + output);
+    }
+}
@@ -0,0 +1,72 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ExecutorQueueBenchmark
+{
+    private static final int[] PRODUCER_COUNTS;
+    private static final int TASKS_PER_RUN = 2000000;
+    private static final int ROUNDS = 5;
+    
+    public static void main(final String[] args) throws InterruptedException {
+        final int workers = Runtime.getRuntime().availableProcessors();
+        System.out.println("Workers: " + workers + ", tasks per run: " + 2000000);
+        for (final int producers : ExecutorQueueBenchmark.PRODUCER_COUNTS) {
+            for (int round = 0; round < 5; ++round) {
+                final boolean report = round == 4;
+                run("linked", producers, report, ExecutorTools.createEagerlyScalingExecutor(0, workers, 1000L, 65536, new DaemonThreadFactory("bench-linked")));
+                run("lockfree", producers, report, ExecutorTools.createLockFreeEagerlyScalingExecutor(0, workers, 1000L, 65536, new DaemonThreadFactory("bench-lockfree")));
+            }
+        }
+    }
+    
+    private static void run(final String name, final int producers, final boolean report, final ThreadPoolExecutor executor) throws InterruptedException {
+        final int tasksPerProducer = 2000000 / producers;
+        final CountDownLatch completed = new CountDownLatch(tasksPerProducer * producers);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong rejections = new AtomicLong();
+        final Runnable task = completed::countDown;
+        final Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; ++i) {
+            (threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < tasksPerProducer; ++j) {
+                    while (true) {
+                        try {
+                            executor.execute(task);
+                        }
+                        catch (RejectedExecutionException e2) {
+                            rejections.incrementAndGet();
+                            Thread.yield();
+                            continue;
+                        }
+                        break;
+                    }
+                }
+            })).start();
+        }
+        final long startTime = System.nanoTime();
+        start.countDown();
+        completed.await();
+        final long elapsed = System.nanoTime() - startTime;
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        ExecutorTools.shutdownExecutor(executor, name);
+        if (report) {
+            System.out.printf("%-9s producers=%-3d %,12d tasks/s  rejections=%d%n", name, producers, (long)(tasksPerProducer * producers * 1.0E9 / elapsed), rejections.get());
+        }
+    }
+    
+    static {
+        PRODUCER_COUNTS = new int[] { 1, 8, 64 };
+    }
+}
@@ -0,0 +1,59 @@
+#define _GNU_SOURCE
+#include <jni.h>
+#include <sched.h>
+#include <errno.h>
+
+#define MASK_WORDS (CPU_SETSIZE / 64)
+
+JNIEXPORT jint JNICALL Java_me_justapie_lava_common_tools_ThreadAffinity_setAffinity0(JNIEnv *env, jclass type, jlongArray mask) {
+    cpu_set_t set;
+    CPU_ZERO(&set);
+
+    jsize words = (*env)->GetArrayLength(env, mask);
+    jlong *bits = (*env)->GetLongArrayElements(env, mask, NULL);
+
+    if (bits == NULL) {
+        return ENOMEM;
+    }
+
+    for (jsize word = 0; word < words && word < MASK_WORDS; word++) {
+        for (int bit = 0; bit < 64; bit++) {
+            if (((unsigned long long) bits[word] >> bit) & 1ULL) {
+                CPU_SET(word * 64 + bit, &set);
+            }
+        }
+    }
+
+    (*env)->ReleaseLongArrayElements(env, mask, bits, JNI_ABORT);
+
+    if (sched_setaffinity(0, sizeof(set), &set) != 0) {
+        return errno;
+    }
+
+    return 0;
+}
+
+JNIEXPORT jlongArray JNICALL Java_me_justapie_lava_common_tools_ThreadAffinity_getAffinity0(JNIEnv *env, jclass type) {
+    cpu_set_t set;
+    CPU_ZERO(&set);
+
+    if (sched_getaffinity(0, sizeof(set), &set) != 0) {
+        return NULL;
+    }
+
+    jlong bits[MASK_WORDS] = { 0 };
+
+    for (int cpu = 0; cpu < CPU_SETSIZE; cpu++) {
+        if (CPU_ISSET(cpu, &set)) {
+            bits[cpu / 64] |= (jlong) (1ULL << (cpu % 64));
+        }
+    }
+
+    jlongArray result = (*env)->NewLongArray(env, MASK_WORDS);
+
+    if (result != NULL) {
+        (*env)->SetLongArrayRegion(env, result, 0, MASK_WORDS, bits);
+    }
+
+    return result;
+}
@@ -0,0 +1,61 @@
+package me.justapie.lava.common.natives;
+
+import java.nio.file.StandardOpenOption;
+import java.nio.file.Paths;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.io.InputStream;
+import me.justapie.lava.common.natives.architecture.SystemType;
+
+public abstract class AbstractNativeLibraryBinaryProvider implements NativeLibraryBinaryProvider
+{
+    protected static final NativeLibraryCompression[] COMPRESSION_PREFERENCE;
+    
+    @Override
+    public InputStream getLibraryStream(final SystemType systemType, final String libraryName) {
+        final ReadableByteChannel libraryChannel = this.getLibraryChannel(systemType, libraryName);
+        return (libraryChannel != null) ? Channels.newInputStream(libraryChannel) : null;
+    }
+    
+    @Override
+    public ReadableByteChannel getLibraryChannel(final SystemType systemType, final String libraryName) {
+        final NativeLibraryBinary binary = this.getLibraryBinary(systemType, libraryName);
+        if (binary == null) {
+            return null;
+        }
+        try {
+            return binary.openDecompressed();
+        }
+        catch (IOException e) {
+            try {
+                binary.close();
+            }
+            catch (IOException ex) {}
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    public abstract NativeLibraryBinary getLibraryBinary(final SystemType p0, final String p1);
+    
+    protected static ReadableByteChannel openResourceChannel(final URL resource) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return FileChannel.open(Paths.get(resource.toURI()), StandardOpenOption.READ);
+            }
+            catch (URISyntaxException e) {
+                throw new IOException("Invalid resource location " + resource, e);
+            }
+        }
+        return Channels.newChannel(resource.openStream());
+    }
+    
+    static {
+        COMPRESSION_PREFERENCE = new NativeLibraryCompression[] { NativeLibraryCompression.GZIP, NativeLibraryCompression.ZLIB, NativeLibraryCompression.NONE };
+    }
+}
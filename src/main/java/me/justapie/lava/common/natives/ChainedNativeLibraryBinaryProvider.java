@@ -0,0 +1,29 @@
+package me.justapie.lava.common.natives;
+
+import java.util.Arrays;
+import java.util.List;
+import me.justapie.lava.common.natives.architecture.SystemType;
+
+public class ChainedNativeLibraryBinaryProvider extends AbstractNativeLibraryBinaryProvider
+{
+    private final List<NativeLibraryBinaryProvider> providers;
+    
+    public ChainedNativeLibraryBinaryProvider(final NativeLibraryBinaryProvider... providers) {
+        this(Arrays.asList(providers));
+    }
+    
+    public ChainedNativeLibraryBinaryProvider(final List<NativeLibraryBinaryProvider> providers) {
+        this.providers = providers;
+    }
+    
+    @Override
+    public NativeLibraryBinary getLibraryBinary(final SystemType systemType, final String libraryName) {
+        for (final NativeLibraryBinaryProvider provider : this.providers) {
+            final NativeLibraryBinary binary = provider.getLibraryBinary(systemType, libraryName);
+            if (binary != null) {
+                return binary;
+            }
+        }
+        return null;
+    }
+}
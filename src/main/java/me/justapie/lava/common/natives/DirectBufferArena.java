@@ -0,0 +1,392 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+
+public class DirectBufferArena
+{
+    private static final Logger log;
+    private static final int MINIMUM_CLASS_SIZE = 64;
+    private static final MethodHandle alignmentOffsetHandle;
+    private static final Field addressField;
+    private final int slabSize;
+    private final int alignment;
+    private final int magazineSize;
+    private final int minimumClassShift;
+    private final SizeClass[] sizeClasses;
+    private final ThreadLocal<ThreadMagazines> magazines;
+    private final List<ThreadMagazines> threadMagazines;
+    private final ConcurrentMap<BufferKey, Slot> slots;
+    private final AtomicLong reservedBytes;
+    private final AtomicLong inUseBytes;
+    
+    public DirectBufferArena() {
+        this(1048576, 64, 16);
+    }
+    
+    public DirectBufferArena(final int slabSize, final int alignment, final int magazineSize) {
+        if (Integer.bitCount(slabSize) != 1 || Integer.bitCount(alignment) != 1 || alignment > slabSize) {
+            throw new IllegalArgumentException("Slab size and alignment must be powers of two, with alignment not above slab size.");
+        }
+        this.slabSize = slabSize;
+        this.alignment = alignment;
+        this.magazineSize = magazineSize;
+        this.minimumClassShift = Integer.numberOfTrailingZeros(Math.min(slabSize, Math.max(alignment, 64)));
+        this.sizeClasses = new SizeClass[Integer.numberOfTrailingZeros(slabSize) - this.minimumClassShift + 1];
+        for (int i = 0; i < this.sizeClasses.length; ++i) {
+            this.sizeClasses[i] = new SizeClass(i, 1 << this.minimumClassShift + i);
+        }
+        this.threadMagazines = new CopyOnWriteArrayList<ThreadMagazines>();
+        this.magazines = ThreadLocal.withInitial(this::createThreadMagazines);
+        this.slots = new ConcurrentHashMap<BufferKey, Slot>();
+        this.reservedBytes = new AtomicLong();
+        this.inUseBytes = new AtomicLong();
+    }
+    
+    public ByteBuffer allocate(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative.");
+        }
+        if (capacity > this.slabSize) {
+            final Slot slot = new Slot(this.allocateAligned(capacity), null, null);
+            slot.inUse.set(true);
+            this.slots.put(slot, slot);
+            this.reservedBytes.addAndGet(capacity + this.alignment);
+            this.inUseBytes.addAndGet(capacity);
+            return slot.buffer;
+        }
+        final int index = this.getClassIndex(capacity);
+        final SizeClass sizeClass = this.sizeClasses[index];
+        final Magazine magazine = this.getMagazine(index);
+        Slot slot2 = magazine.pop();
+        if (slot2 == null) {
+            slot2 = this.refill(sizeClass, magazine);
+        }
+        slot2.inUse.set(true);
+        this.inUseBytes.addAndGet(sizeClass.size);
+        ((Buffer)slot2.buffer).limit(capacity);
+        return slot2.buffer;
+    }
+    
+    public void release(final ByteBuffer buffer) {
+        final BufferKey lookupKey = this.magazines.get().lookupKey;
+        lookupKey.buffer = buffer;
+        final Slot slot;
+        try {
+            slot = this.slots.get(lookupKey);
+        }
+        finally {
+            lookupKey.buffer = null;
+        }
+        if (slot == null) {
+            throw new IllegalArgumentException("Buffer of capacity " + buffer.capacity() + " was not allocated from this arena.");
+        }
+        if (!slot.inUse.compareAndSet(true, false)) {
+            throw new IllegalStateException("Buffer of capacity " + buffer.capacity() + " was already released to this arena.");
+        }
+        if (slot.sizeClass == null) {
+            this.slots.remove(slot);
+            this.inUseBytes.addAndGet(-buffer.capacity());
+            this.reservedBytes.addAndGet(-(buffer.capacity() + this.alignment));
+            return;
+        }
+        ((Buffer)buffer).clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        this.inUseBytes.addAndGet(-slot.sizeClass.size);
+        final Magazine magazine = this.getMagazine(slot.sizeClass.index);
+        if (!magazine.push(slot)) {
+            magazine.flushHalf(slot.sizeClass);
+            magazine.push(slot);
+        }
+    }
+    
+    public void flushThreadCache() {
+        this.magazines.get().flushAll(this.sizeClasses);
+    }
+    
+    public long trim() {
+        this.reclaimDeadThreadCaches();
+        long trimmed = 0L;
+        for (final SizeClass sizeClass : this.sizeClasses) {
+            synchronized (sizeClass) {
+                final List<Slot> idle = new ArrayList<Slot>();
+                final Map<Slab, Integer> idleCounts = new IdentityHashMap<Slab, Integer>();
+                Slot slot;
+                while ((slot = sizeClass.depot.poll()) != null) {
+                    idle.add(slot);
+                    idleCounts.merge(slot.slab, 1, Integer::sum);
+                }
+                for (final Slot idleSlot : idle) {
+                    if (idleCounts.get(idleSlot.slab) == idleSlot.slab.sliceCount) {
+                        this.slots.remove(idleSlot);
+                    }
+                    else {
+                        sizeClass.depot.offer(idleSlot);
+                    }
+                }
+                for (final Map.Entry<Slab, Integer> entry : idleCounts.entrySet()) {
+                    if (entry.getValue() == entry.getKey().sliceCount) {
+                        trimmed += this.slabSize + this.alignment;
+                    }
+                }
+            }
+        }
+        this.reservedBytes.addAndGet(-trimmed);
+        if (trimmed > 0L) {
+            DirectBufferArena.log.debug("Trimmed {} bytes of idle slabs.", (Object)trimmed);
+        }
+        return trimmed;
+    }
+    
+    public long getReservedBytes() {
+        return this.reservedBytes.get();
+    }
+    
+    public long getInUseBytes() {
+        return this.inUseBytes.get();
+    }
+    
+    private int getClassIndex(final int capacity) {
+        if (capacity <= 1 << this.minimumClassShift) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - this.minimumClassShift;
+    }
+    
+    private Magazine getMagazine(final int index) {
+        final Magazine[] threadMagazines = this.magazines.get().magazines;
+        Magazine magazine = threadMagazines[index];
+        if (magazine == null) {
+            magazine = (threadMagazines[index] = new Magazine(this.magazineSize));
+        }
+        return magazine;
+    }
+    
+    private ThreadMagazines createThreadMagazines() {
+        final ThreadMagazines cache = new ThreadMagazines(Thread.currentThread(), this.sizeClasses.length);
+        this.threadMagazines.add(cache);
+        return cache;
+    }
+    
+    private void reclaimDeadThreadCaches() {
+        for (final ThreadMagazines cache : this.threadMagazines) {
+            final Thread owner = cache.owner.get();
+            if ((owner == null || !owner.isAlive()) && this.threadMagazines.remove(cache)) {
+                cache.flushAll(this.sizeClasses);
+            }
+        }
+    }
+    
+    private Slot refill(final SizeClass sizeClass, final Magazine magazine) {
+        Slot slot;
+        while ((slot = sizeClass.depot.poll()) == null) {
+            synchronized (sizeClass) {
+                if (sizeClass.depot.isEmpty()) {
+                    this.reclaimDeadThreadCaches();
+                    if (sizeClass.depot.isEmpty()) {
+                        this.carveSlab(sizeClass);
+                    }
+                }
+            }
+        }
+        for (int i = 1; i < this.magazineSize; ++i) {
+            final Slot extra = sizeClass.depot.poll();
+            if (extra == null) {
+                break;
+            }
+            magazine.push(extra);
+        }
+        return slot;
+    }
+    
+    private void carveSlab(final SizeClass sizeClass) {
+        final ByteBuffer buffer = this.allocateAligned(this.slabSize);
+        final Slab slab = new Slab(this.slabSize / sizeClass.size);
+        this.reservedBytes.addAndGet(this.slabSize + this.alignment);
+        DirectBufferArena.log.debug("Allocated new {} byte slab for {} byte buffers.", (Object)this.slabSize, (Object)sizeClass.size);
+        for (int offset = 0; offset < this.slabSize; offset += sizeClass.size) {
+            ((Buffer)buffer).limit(offset + sizeClass.size);
+            ((Buffer)buffer).position(offset);
+            final Slot slot = new Slot(buffer.slice(), sizeClass, slab);
+            this.slots.put(slot, slot);
+            sizeClass.depot.offer(slot);
+        }
+    }
+    private ByteBuffer allocateAligned(final int capacity) {
+        final ByteBuffer raw = ByteBuffer.allocateDirect(capacity + this.alignment);
+        final int misalignment = alignmentOffset(raw, this.alignment);
+        final int start = (misalignment == 0) ? 0 : (this.alignment - misalignment);
+        ((Buffer)raw).limit(start + capacity);
+        ((Buffer)raw).position(start);
+        return raw.slice();
+    }
+    
+    private static int alignmentOffset(final ByteBuffer buffer, final int alignment) {
+        try {
+            if (DirectBufferArena.alignmentOffsetHandle != null) {
+                return (int)DirectBufferArena.alignmentOffsetHandle.invokeExact(buffer, 0, alignment);
+            }
+            if (DirectBufferArena.addressField != null) {
+                return (int)(DirectBufferArena.addressField.getLong(buffer) & (long)(alignment - 1));
+            }
+        }
+        catch (Throwable e) {
+            DirectBufferArena.log.debug("Could not determine direct buffer alignment.", e);
+        }
+        return 0;
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)DirectBufferArena.class);
+        MethodHandle handle = null;
+        Field field = null;
+        try {
+            handle = MethodHandles.publicLookup().findVirtual(ByteBuffer.class, "alignmentOffset", MethodType.methodType(Integer.TYPE, Integer.TYPE, Integer.TYPE));
+        }
+        catch (ReflectiveOperationException e) {
+            try {
+                field = Buffer.class.getDeclaredField("address");
+                field.setAccessible(true);
+            }
+            catch (Exception e2) {
+                DirectBufferArena.log.warn("Direct buffer address is not accessible, arena slices may not be aligned.", e2);
+            }
+        }
+        alignmentOffsetHandle = handle;
+        addressField = field;
+    }
+    
+    private static class BufferKey
+    {
+        protected ByteBuffer buffer;
+        
+        private BufferKey(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.buffer);
+        }
+        
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof BufferKey && ((BufferKey)other).buffer == this.buffer;
+        }
+    }
+    
+    private static class Slot extends BufferKey
+    {
+        private final SizeClass sizeClass;
+        private final Slab slab;
+        private final AtomicBoolean inUse;
+        
+        private Slot(final ByteBuffer buffer, final SizeClass sizeClass, final Slab slab) {
+            super(buffer);
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+            this.inUse = new AtomicBoolean();
+        }
+    }
+    
+    private static class Slab
+    {
+        private final int sliceCount;
+        
+        private Slab(final int sliceCount) {
+            this.sliceCount = sliceCount;
+        }
+    }
+    
+    private static class SizeClass
+    {
+        private final int index;
+        private final int size;
+        private final ConcurrentLinkedQueue<Slot> depot;
+        
+        private SizeClass(final int index, final int size) {
+            this.index = index;
+            this.size = size;
+            this.depot = new ConcurrentLinkedQueue<Slot>();
+        }
+    }
+    
+    private static class ThreadMagazines
+    {
+        private final WeakReference<Thread> owner;
+        private final Magazine[] magazines;
+        private final BufferKey lookupKey;
+        
+        private ThreadMagazines(final Thread owner, final int classCount) {
+            this.owner = new WeakReference<Thread>(owner);
+            this.magazines = new Magazine[classCount];
+            this.lookupKey = new BufferKey(null);
+        }
+        
+        private void flushAll(final SizeClass[] sizeClasses) {
+            for (int i = 0; i < this.magazines.length; ++i) {
+                if (this.magazines[i] != null) {
+                    this.magazines[i].flushAll(sizeClasses[i]);
+                }
+            }
+        }
+    }
+    
+    private static class Magazine
+    {
+        private final Slot[] slots;
+        private int count;
+        
+        private Magazine(final int size) {
+            this.slots = new Slot[Math.max(size, 1)];
+        }
+        
+        private Slot pop() {
+            if (this.count == 0) {
+                return null;
+            }
+            final Slot slot = this.slots[--this.count];
+            this.slots[this.count] = null;
+            return slot;
+        }
+        
+        private boolean push(final Slot slot) {
+            if (this.count == this.slots.length) {
+                return false;
+            }
+            this.slots[this.count++] = slot;
+            return true;
+        }
+        
+        private void flushHalf(final SizeClass sizeClass) {
+            final int target = this.count / 2;
+            while (this.count > target) {
+                sizeClass.depot.offer(this.pop());
+            }
+        }
+        
+        private void flushAll(final SizeClass sizeClass) {
+            while (this.count > 0) {
+                sizeClass.depot.offer(this.pop());
+            }
+        }
+    }
+}
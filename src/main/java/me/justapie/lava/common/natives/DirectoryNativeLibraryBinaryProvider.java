@@ -0,0 +1,45 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.LinkOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.channels.FileChannel;
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import me.justapie.lava.common.natives.architecture.SystemType;
+import org.slf4j.Logger;
+
+public class DirectoryNativeLibraryBinaryProvider extends AbstractNativeLibraryBinaryProvider
+{
+    private static final Logger log;
+    private final Path directory;
+    
+    public DirectoryNativeLibraryBinaryProvider(final Path directory) {
+        this.directory = directory;
+    }
+    
+    @Override
+    public NativeLibraryBinary getLibraryBinary(final SystemType systemType, final String libraryName) {
+        for (final String systemName : systemType.formatSystemNameCandidates()) {
+            for (final NativeLibraryCompression compression : DirectoryNativeLibraryBinaryProvider.COMPRESSION_PREFERENCE) {
+                final Path path = this.directory.resolve(systemName).resolve(systemType.formatLibraryName(libraryName) + compression.getFileSuffix());
+                DirectoryNativeLibraryBinaryProvider.log.debug("Native library {}: trying to find from directory at {}", (Object)libraryName, (Object)path);
+                if (Files.isRegularFile(path, new LinkOption[0])) {
+                    try {
+                        return new NativeLibraryBinary(() -> FileChannel.open(path, StandardOpenOption.READ), compression, Files.size(path), null);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)DirectoryNativeLibraryBinaryProvider.class);
+    }
+}
@@ -0,0 +1,89 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.Map;
+import me.justapie.lava.common.natives.architecture.SystemType;
+import org.slf4j.Logger;
+
+public class IndexedNativeLibraryBinaryProvider extends AbstractNativeLibraryBinaryProvider
+{
+    private static final Logger log;
+    private static final Map<ClassLoader, Map<String, NativeLibraryIndex>> loadedIndexes;
+    private final Class<?> classLoaderSample;
+    private final String nativesRoot;
+    private volatile NativeLibraryIndex index;
+    
+    public IndexedNativeLibraryBinaryProvider(final Class<?> classLoaderSample, final String nativesRoot) {
+        this.classLoaderSample = ((classLoaderSample != null) ? classLoaderSample : IndexedNativeLibraryBinaryProvider.class);
+        this.nativesRoot = nativesRoot;
+    }
+    
+    @Override
+    public NativeLibraryBinary getLibraryBinary(final SystemType systemType, final String libraryName) {
+        final NativeLibraryIndex index = this.getIndex();
+        for (final String systemName : systemType.formatSystemNameCandidates()) {
+            for (final NativeLibraryCompression compression : IndexedNativeLibraryBinaryProvider.COMPRESSION_PREFERENCE) {
+                final NativeLibraryIndex.Entry entry = index.get(systemName, systemType.formatLibraryName(libraryName) + compression.getFileSuffix());
+                if (entry != null) {
+                    final String resourcePath = this.nativesRoot + entry.systemName + "/" + entry.fileName;
+                    IndexedNativeLibraryBinaryProvider.log.debug("Native library {}: found in index as {} ({} bytes, sha256 {})", new Object[] { libraryName, resourcePath, entry.size, entry.sha256 });
+                    return new NativeLibraryBinary(() -> this.openResource(resourcePath), compression, entry.size, entry.sha256);
+                }
+            }
+        }
+        return null;
+    }
+    
+    private ReadableByteChannel openResource(final String resourcePath) throws IOException {
+        final URL resource = this.classLoaderSample.getResource(resourcePath);
+        if (resource == null) {
+            throw new FileNotFoundException("Native library " + resourcePath + " is listed in the index but missing from resources");
+        }
+        return AbstractNativeLibraryBinaryProvider.openResourceChannel(resource);
+    }
+    
+    private NativeLibraryIndex getIndex() {
+        NativeLibraryIndex index = this.index;
+        if (index == null) {
+            synchronized (IndexedNativeLibraryBinaryProvider.loadedIndexes) {
+                final Map<String, NativeLibraryIndex> indexes = IndexedNativeLibraryBinaryProvider.loadedIndexes.computeIfAbsent(this.classLoaderSample.getClassLoader(), loader -> new HashMap<String, NativeLibraryIndex>());
+                index = indexes.get(this.nativesRoot);
+                if (index == null) {
+                    index = this.loadIndex();
+                    indexes.put(this.nativesRoot, index);
+                }
+            }
+            this.index = index;
+        }
+        return index;
+    }
+    
+    private NativeLibraryIndex loadIndex() {
+        final String indexPath = this.nativesRoot + "index";
+        try (final InputStream input = this.classLoaderSample.getResourceAsStream(indexPath)) {
+            if (input == null) {
+                IndexedNativeLibraryBinaryProvider.log.debug("No native library index found at {}.", (Object)indexPath);
+                return NativeLibraryIndex.EMPTY;
+            }
+            final NativeLibraryIndex index = NativeLibraryIndex.read(input);
+            IndexedNativeLibraryBinaryProvider.log.debug("Loaded native library index from {} with {} entries.", (Object)indexPath, (Object)index.getEntries().size());
+            return index;
+        }
+        catch (IOException e) {
+            IndexedNativeLibraryBinaryProvider.log.warn("Failed to read native library index from {}, ignoring it.", (Object)indexPath, (Object)e);
+            return NativeLibraryIndex.EMPTY;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)IndexedNativeLibraryBinaryProvider.class);
+        loadedIndexes = new WeakHashMap<ClassLoader, Map<String, NativeLibraryIndex>>();
+    }
+}
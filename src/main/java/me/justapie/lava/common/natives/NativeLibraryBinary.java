@@ -0,0 +1,60 @@
+package me.justapie.lava.common.natives;
+
+import java.nio.channels.ReadableByteChannel;
+import java.io.IOException;
+import java.io.Closeable;
+
+public class NativeLibraryBinary implements Closeable
+{
+    private final ChannelOpener opener;
+    private final NativeLibraryCompression compression;
+    private final long size;
+    private final String sha256;
+    private ReadableByteChannel channel;
+    
+    public NativeLibraryBinary(final ReadableByteChannel channel, final NativeLibraryCompression compression) {
+        this(() -> channel, compression, -1L, null);
+    }
+    
+    public NativeLibraryBinary(final ChannelOpener opener, final NativeLibraryCompression compression, final long size, final String sha256) {
+        this.opener = opener;
+        this.compression = compression;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+    
+    public synchronized ReadableByteChannel getChannel() throws IOException {
+        if (this.channel == null) {
+            this.channel = this.opener.open();
+        }
+        return this.channel;
+    }
+    
+    public NativeLibraryCompression getCompression() {
+        return this.compression;
+    }
+    
+    public long getSize() {
+        return this.size;
+    }
+    
+    public String getSha256() {
+        return this.sha256;
+    }
+    
+    public ReadableByteChannel openDecompressed() throws IOException {
+        return this.compression.decompress(this.getChannel());
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+    
+    public interface ChannelOpener
+    {
+        ReadableByteChannel open() throws IOException;
+    }
+}
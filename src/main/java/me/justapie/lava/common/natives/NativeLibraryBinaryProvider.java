@@ -1,9 +1,21 @@
 package me.justapie.lava.common.natives;
 
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.io.InputStream;
 import me.justapie.lava.common.natives.architecture.SystemType;
 
 public interface NativeLibraryBinaryProvider
 {
     InputStream getLibraryStream(final SystemType p0, final String p1);
+    
+    default ReadableByteChannel getLibraryChannel(final SystemType systemType, final String libraryName) {
+        final InputStream libraryStream = this.getLibraryStream(systemType, libraryName);
+        return (libraryStream != null) ? Channels.newChannel(libraryStream) : null;
+    }
+    
+    default NativeLibraryBinary getLibraryBinary(final SystemType systemType, final String libraryName) {
+        final ReadableByteChannel libraryChannel = this.getLibraryChannel(systemType, libraryName);
+        return (libraryChannel != null) ? new NativeLibraryBinary(libraryChannel, NativeLibraryCompression.NONE) : null;
+    }
 }
@@ -0,0 +1,522 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.UserPrincipal;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.MessageDigest;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import me.justapie.lava.common.natives.architecture.SystemType;
+import org.slf4j.Logger;
+
+class NativeLibraryCache
+{
+    private static final Logger log;
+    static final String LOCK_FILE_NAME = ".lock";
+    static final String USE_FILE_NAME = ".use";
+    private static final Map<Path, FileChannel> usedEntries;
+    private static final int BUFFER_SIZE = 262144;
+    private static final long MAPPING_SIZE = 1073741824L;
+    private static final long LOCK_RETRY_INTERVAL = 10L;
+    private final Path baseDirectory;
+    private final String libraryName;
+    private final NativeLibraryLoadListener listener;
+    private final boolean verifyCachedCopies;
+    
+    NativeLibraryCache(final Path baseDirectory, final String libraryName, final NativeLibraryLoadListener listener) {
+        this(baseDirectory, libraryName, listener, false);
+    }
+    
+    NativeLibraryCache(final Path baseDirectory, final String libraryName, final NativeLibraryLoadListener listener, final boolean verifyCachedCopies) {
+        this.baseDirectory = baseDirectory;
+        this.libraryName = libraryName;
+        this.listener = listener;
+        this.verifyCachedCopies = verifyCachedCopies;
+    }
+    
+    Path extract(final SystemType systemType, final NativeLibraryBinaryProvider binaryProvider) throws IOException {
+        final Digest digest;
+        final NativeLibraryCompression compression;
+        long startTime = System.nanoTime();
+        try (final NativeLibraryBinary binary = this.openBinary(systemType, binaryProvider)) {
+            final long lookupTime = System.nanoTime();
+            this.listener.onPhase(this.libraryName, NativeLibraryLoadPhase.LOOKUP, lookupTime - startTime, 0L);
+            compression = binary.getCompression();
+            if (binary.getSha256() != null && binary.getSize() >= 0L) {
+                NativeLibraryCache.log.debug("Native library {}: using checksum {} from the library manifest.", (Object)this.libraryName, (Object)binary.getSha256());
+                digest = new Digest(binary.getSha256().toLowerCase(), binary.getSize());
+            }
+            else {
+                digest = digest(binary.getChannel());
+                this.listener.onPhase(this.libraryName, NativeLibraryLoadPhase.HASH, System.nanoTime() - lookupTime, digest.size);
+            }
+        }
+        final Path entryDirectory = this.baseDirectory.resolve(systemType.formatSystemName()).resolve(digest.hash);
+        final Path libraryPath = entryDirectory.resolve(systemType.formatLibraryName(this.libraryName));
+        createEntryDirectory(entryDirectory);
+        markInUse(entryDirectory);
+        if (this.isComplete(libraryPath, digest, compression)) {
+            NativeLibraryCache.log.debug("Native library {}: found cached copy at {}, skipping extraction.", (Object)this.libraryName, (Object)libraryPath);
+            touch(entryDirectory);
+            this.listener.onCacheLookup(this.libraryName, true);
+            return libraryPath;
+        }
+        this.listener.onCacheLookup(this.libraryName, false);
+        try (final FileChannel lockChannel = openLockFile(entryDirectory.resolve(".lock"))) {
+            final FileLock lock = acquireLock(lockChannel);
+            try {
+                if (this.isComplete(libraryPath, digest, compression)) {
+                    NativeLibraryCache.log.debug("Native library {}: cached copy at {} was extracted concurrently, using.", (Object)this.libraryName, (Object)libraryPath);
+                    return libraryPath;
+                }
+                NativeLibraryCache.log.debug("Native library {}: extracting to {}.", (Object)this.libraryName, (Object)libraryPath);
+                startTime = System.nanoTime();
+                final Digest written = this.extractLocked(systemType, binaryProvider, libraryPath, digest);
+                this.listener.onPhase(this.libraryName, NativeLibraryLoadPhase.EXTRACT, System.nanoTime() - startTime, written.size);
+            }
+            finally {
+                lock.release();
+            }
+        }
+        return libraryPath;
+    }
+    
+    private Digest extractLocked(final SystemType systemType, final NativeLibraryBinaryProvider binaryProvider, final Path libraryPath, final Digest expected) throws IOException {
+        final Path temporaryPath = createTemporaryFile(libraryPath);
+        try {
+            final Digest source;
+            final Digest written;
+            final NativeLibraryCompression compression;
+            try (final NativeLibraryBinary binary = this.openBinary(systemType, binaryProvider);
+                 final FileChannel fileChannel = FileChannel.open(temporaryPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                compression = binary.getCompression();
+                if (compression == NativeLibraryCompression.NONE) {
+                    written = copy(binary.getChannel(), fileChannel);
+                    source = written;
+                }
+                else {
+                    final DigestingChannel digestingChannel = new DigestingChannel(binary.getChannel());
+                    try (final ReadableByteChannel decompressedChannel = compression.decompress(digestingChannel)) {
+                        written = copy(decompressedChannel, fileChannel);
+                    }
+                    source = digestingChannel.finish();
+                }
+            }
+            if (!source.equals(expected)) {
+                throw new IOException("Library binary changed during extraction, expected " + expected.hash + " but got " + source.hash);
+            }
+            if (compression != NativeLibraryCompression.NONE) {
+                writeContentDigest(getContentDigestPath(libraryPath), written);
+            }
+            setPermissions(temporaryPath, "rwxr-xr-x");
+            Files.move(temporaryPath, libraryPath, StandardCopyOption.ATOMIC_MOVE);
+            writeVerifiedStamp(libraryPath, written);
+            return written;
+        }
+        finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+    
+    private NativeLibraryBinary openBinary(final SystemType systemType, final NativeLibraryBinaryProvider binaryProvider) {
+        final NativeLibraryBinary binary = binaryProvider.getLibraryBinary(systemType, this.libraryName);
+        if (binary == null) {
+            throw new UnsatisfiedLinkError("Required library was not found");
+        }
+        return binary;
+    }
+    
+    private boolean isComplete(final Path libraryPath, final Digest sourceDigest, final NativeLibraryCompression compression) throws IOException {
+        final Digest expected = (compression == NativeLibraryCompression.NONE) ? sourceDigest : readContentDigest(getContentDigestPath(libraryPath));
+        if (expected == null || !Files.isRegularFile(libraryPath, new LinkOption[0]) || Files.size(libraryPath) != expected.size) {
+            return false;
+        }
+        if (!this.verifyCachedCopies && isPrivate(libraryPath.getParent()) && isPrivate(libraryPath) && createVerifiedStamp(libraryPath, expected).equals(readStamp(getVerifiedStampPath(libraryPath)))) {
+            return true;
+        }
+        final long startTime = System.nanoTime();
+        try (final FileChannel fileChannel = FileChannel.open(libraryPath, StandardOpenOption.READ)) {
+            final boolean matches = digest(fileChannel).equals(expected);
+            this.listener.onPhase(this.libraryName, NativeLibraryLoadPhase.VERIFY, System.nanoTime() - startTime, expected.size);
+            if (matches) {
+                writeVerifiedStamp(libraryPath, expected);
+                return true;
+            }
+        }
+        NativeLibraryCache.log.warn("Native library {}: cached copy at {} does not match its content hash, extracting again.", (Object)this.libraryName, (Object)libraryPath);
+        return false;
+    }
+    
+    private static Path getContentDigestPath(final Path libraryPath) {
+        return libraryPath.resolveSibling(libraryPath.getFileName().toString() + ".sha256");
+    }
+    
+    private static boolean isPrivate(final Path path) {
+        try {
+            final UserPrincipal currentUser = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name", ""));
+            if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                return currentUser.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS));
+            }
+            final PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            final Set<PosixFilePermission> permissions = attributes.permissions();
+            return currentUser.equals(attributes.owner()) && !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        }
+        catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+    
+    private static Path getVerifiedStampPath(final Path libraryPath) {
+        return libraryPath.resolveSibling(libraryPath.getFileName().toString() + ".verified");
+    }
+    
+    private static String createVerifiedStamp(final Path libraryPath, final Digest digest) throws IOException {
+        return digest.hash + " " + digest.size + " " + Files.getLastModifiedTime(libraryPath, new LinkOption[0]).toMillis();
+    }
+    
+    private static void writeVerifiedStamp(final Path libraryPath, final Digest digest) {
+        try {
+            writeStamp(getVerifiedStampPath(libraryPath), createVerifiedStamp(libraryPath, digest));
+        }
+        catch (IOException e) {
+            NativeLibraryCache.log.debug("Could not record verification of {}, it will be hashed again on next use.", (Object)libraryPath, (Object)e);
+        }
+    }
+    
+    private static Digest readContentDigest(final Path path) throws IOException {
+        final String stamp = readStamp(path);
+        if (stamp == null) {
+            return null;
+        }
+        final String[] parts = stamp.split(" ");
+        try {
+            return (parts.length == 2) ? new Digest(parts[0], Long.parseLong(parts[1])) : null;
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static void writeContentDigest(final Path path, final Digest digest) throws IOException {
+        writeStamp(path, digest.hash + " " + digest.size);
+    }
+    
+    private static String readStamp(final Path path) throws IOException {
+        if (!Files.isRegularFile(path, new LinkOption[0])) {
+            return null;
+        }
+        return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+    }
+    
+    private static void writeStamp(final Path path, final String stamp) throws IOException {
+        final Path temporaryPath = createTemporaryFile(path);
+        try {
+            Files.write(temporaryPath, stamp.getBytes(StandardCharsets.US_ASCII), new OpenOption[0]);
+            setPermissions(temporaryPath, "rw-r--r--");
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+    
+    private static Path createTemporaryFile(final Path targetPath) throws IOException {
+        return Files.createTempFile(targetPath.getParent(), targetPath.getFileName().toString(), ".tmp", new FileAttribute<?>[0]);
+    }
+    
+    private static Digest copy(final ReadableByteChannel source, final FileChannel target) throws IOException {
+        if (source instanceof FileChannel) {
+            final FileChannel sourceFile = (FileChannel)source;
+            final long size = sourceFile.size();
+            long position = 0L;
+            while (position < size) {
+                position += sourceFile.transferTo(position, size - position, target);
+            }
+            target.position(0L);
+            return digest(target);
+        }
+        final MessageDigest messageDigest = createMessageDigest();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(262144);
+        long size2 = 0L;
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            size2 += buffer.remaining();
+            messageDigest.update(buffer);
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            buffer.clear();
+        }
+        return new Digest(toHex(messageDigest.digest()), size2);
+    }
+    
+    static String sha256(final Path path) throws IOException {
+        try (final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return digest(fileChannel).hash;
+        }
+    }
+    
+    private static Digest digest(final ReadableByteChannel channel) throws IOException {
+        final MessageDigest messageDigest = createMessageDigest();
+        if (channel instanceof FileChannel) {
+            final FileChannel fileChannel = (FileChannel)channel;
+            final long start = fileChannel.position();
+            final long end = fileChannel.size();
+            for (long position = start; position < end; position += 1073741824L) {
+                messageDigest.update(fileChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(end - position, 1073741824L)));
+            }
+            return new Digest(toHex(messageDigest.digest()), end - start);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(262144);
+        long size2 = 0L;
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            size2 += buffer.remaining();
+            messageDigest.update(buffer);
+            buffer.clear();
+        }
+        return new Digest(toHex(messageDigest.digest()), size2);
+    }
+    
+    private static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+    
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (final byte value : bytes) {
+            builder.append(Character.forDigit(value >> 4 & 0xF, 16));
+            builder.append(Character.forDigit(value & 0xF, 16));
+        }
+        return builder.toString();
+    }
+    
+    static boolean deleteIfUnused(final Path entryDirectory) throws IOException {
+        synchronized (NativeLibraryCache.usedEntries) {
+            if (NativeLibraryCache.usedEntries.containsKey(entryDirectory)) {
+                return false;
+            }
+            try (final FileChannel useChannel = openLockFile(entryDirectory.resolve(".use"));
+                 final FileLock useLock = tryLock(useChannel);
+                 final FileChannel lockChannel = openLockFile(entryDirectory.resolve(".lock"));
+                 final FileLock lock = tryLock(lockChannel)) {
+                if (useLock == null || lock == null) {
+                    return false;
+                }
+                try (final DirectoryStream<Path> stream = Files.newDirectoryStream(entryDirectory)) {
+                    for (final Path file : stream) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(entryDirectory);
+                return true;
+            }
+        }
+    }
+    
+    private static void markInUse(final Path entryDirectory) throws IOException {
+        synchronized (NativeLibraryCache.usedEntries) {
+            while (!NativeLibraryCache.usedEntries.containsKey(entryDirectory)) {
+                final Path usePath = entryDirectory.resolve(".use");
+                final FileChannel channel;
+                try {
+                    channel = openLockFile(usePath);
+                }
+                catch (NoSuchFileException ex) {
+                    createEntryDirectory(entryDirectory);
+                    continue;
+                }
+                boolean held = false;
+                try {
+                    channel.lock(0L, Long.MAX_VALUE, true);
+                    if (Files.exists(usePath, new LinkOption[0])) {
+                        NativeLibraryCache.usedEntries.put(entryDirectory, channel);
+                        held = true;
+                    }
+                }
+                catch (OverlappingFileLockException ex2) {
+                    return;
+                }
+                finally {
+                    if (!held) {
+                        channel.close();
+                    }
+                }
+                if (!held) {
+                    createEntryDirectory(entryDirectory);
+                }
+            }
+        }
+    }
+    
+    private static void touch(final Path entryDirectory) {
+        try {
+            Files.setLastModifiedTime(entryDirectory, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException ex) {}
+    }
+    
+    private static FileChannel openLockFile(final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        setPermissions(path, "rw-r--r--");
+        return channel;
+    }
+    
+    private static void setPermissions(final Path path, final String permissions) {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            try {
+                Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(permissions));
+            }
+            catch (IOException ex) {}
+        }
+    }
+    
+    private static FileLock tryLock(final FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        }
+        catch (OverlappingFileLockException ex) {
+            return null;
+        }
+    }
+    
+    private static FileLock acquireLock(final FileChannel channel) throws IOException {
+        while (true) {
+            try {
+                return channel.lock();
+            }
+            catch (OverlappingFileLockException ex) {
+                try {
+                    Thread.sleep(10L);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for native library extraction lock.");
+                }
+            }
+        }
+    }
+    
+    private static void createEntryDirectory(final Path path) throws IOException {
+        try {
+            createPrivateDirectories(path);
+        }
+        catch (IOException e) {
+            if (!Files.isDirectory(path, new LinkOption[0])) {
+                throw new IOException("Failed to create directory for unpacked native library.", e);
+            }
+        }
+    }
+    
+    private static void createPrivateDirectories(final Path path) throws IOException {
+        final boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!isPosix) {
+            Files.createDirectories(path, new FileAttribute<?>[0]);
+        }
+        else {
+            Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)NativeLibraryCache.class);
+        usedEntries = new HashMap<Path, FileChannel>();
+    }
+    
+    private static class DigestingChannel implements ReadableByteChannel
+    {
+        private final ReadableByteChannel delegate;
+        private final MessageDigest messageDigest;
+        private long size;
+        
+        private DigestingChannel(final ReadableByteChannel delegate) {
+            this.delegate = delegate;
+            this.messageDigest = createMessageDigest();
+        }
+        
+        @Override
+        public int read(final ByteBuffer buffer) throws IOException {
+            final int start = buffer.position();
+            final int read = this.delegate.read(buffer);
+            if (read > 0) {
+                final ByteBuffer readBytes = buffer.duplicate();
+                readBytes.position(start);
+                readBytes.limit(start + read);
+                this.messageDigest.update(readBytes);
+                this.size += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return this.delegate.isOpen();
+        }
+        
+        @Override
+        public void close() {
+        }
+        
+        private Digest finish() throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(65536);
+            while (this.read(buffer) != -1) {
+                buffer.clear();
+            }
+            return new Digest(toHex(this.messageDigest.digest()), this.size);
+        }
+    }
+    
+    private static class Digest
+    {
+        private final String hash;
+        private final long size;
+        
+        private Digest(final String hash, final long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+        
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Digest)) {
+                return false;
+            }
+            final Digest digest = (Digest)other;
+            return this.size == digest.size && this.hash.equals(digest.hash);
+        }
+        
+        @Override
+        public int hashCode() {
+            return this.hash.hashCode();
+        }
+    }
+}
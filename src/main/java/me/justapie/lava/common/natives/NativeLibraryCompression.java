@@ -0,0 +1,50 @@
+package me.justapie.lava.common.natives;
+
+import java.util.zip.InflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.GZIPInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.io.IOException;
+
+public enum NativeLibraryCompression
+{
+    NONE(""), 
+    GZIP(".gz"), 
+    ZLIB(".zz");
+    
+    private static final int BUFFER_SIZE = 65536;
+    private final String fileSuffix;
+    
+    private NativeLibraryCompression(final String fileSuffix) {
+        this.fileSuffix = fileSuffix;
+    }
+    
+    public String getFileSuffix() {
+        return this.fileSuffix;
+    }
+    
+    public ReadableByteChannel decompress(final ReadableByteChannel channel) throws IOException {
+        switch (this) {
+            case GZIP: {
+                return Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), 65536));
+            }
+            case ZLIB: {
+                return Channels.newChannel(new InflaterInputStream(Channels.newInputStream(channel), new Inflater(), 65536) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        }
+                        finally {
+                            this.inf.end();
+                        }
+                    }
+                });
+            }
+            default: {
+                return channel;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import me.justapie.lava.common.tools.DaemonThreadFactory;
+import org.slf4j.Logger;
+
+public class NativeLibraryExtractionCleaner
+{
+    private static final Logger log;
+    private static final int DEFAULT_RETAIN_COUNT = 3;
+    private static final long DEFAULT_RETAIN_AGE = 3600000L;
+    private static final Set<Path> scheduledDirectories;
+    private final Path baseDirectory;
+    private final int retainCount;
+    private final long retainAge;
+    
+    public NativeLibraryExtractionCleaner(final Path baseDirectory) {
+        this(baseDirectory, 3, 3600000L);
+    }
+    
+    public NativeLibraryExtractionCleaner(final Path baseDirectory, final int retainCount, final long retainAge) {
+        this.baseDirectory = baseDirectory;
+        this.retainCount = retainCount;
+        this.retainAge = retainAge;
+    }
+    
+    public int clean() {
+        final List<Entry> entries = this.collectEntries();
+        final Map<String, List<Entry>> libraries = new LinkedHashMap<String, List<Entry>>();
+        for (final Entry entry : entries) {
+            libraries.computeIfAbsent(entry.library, library -> new ArrayList<Entry>()).add(entry);
+        }
+        final long cutoff = System.currentTimeMillis() - this.retainAge;
+        int removed = 0;
+        for (final List<Entry> libraryEntries : libraries.values()) {
+            libraryEntries.sort(Comparator.comparingLong((Entry entry) -> entry.lastModified).reversed());
+            for (int i = this.retainCount; i < libraryEntries.size(); ++i) {
+                final Entry entry = libraryEntries.get(i);
+                if (entry.lastModified < cutoff && this.delete(entry)) {
+                    ++removed;
+                }
+            }
+        }
+        NativeLibraryExtractionCleaner.log.debug("Removed {} of {} native library extraction directories from {}.", new Object[] { removed, entries.size(), this.baseDirectory });
+        return removed;
+    }
+    
+    public Thread cleanInBackground() {
+        final Thread thread = new DaemonThreadFactory("native-cleaner").newThread(this::clean);
+        thread.start();
+        return thread;
+    }
+    
+    static void cleanInBackgroundOnce(final Path baseDirectory, final NativeLibraryProperties properties) {
+        final int retainCount = parseOrDefault(properties.getCleanupRetainCount(), 3L).intValue();
+        if (retainCount < 0 || !NativeLibraryExtractionCleaner.scheduledDirectories.add(baseDirectory)) {
+            return;
+        }
+        new NativeLibraryExtractionCleaner(baseDirectory, retainCount, parseOrDefault(properties.getCleanupRetainAge(), 3600000L)).cleanInBackground();
+    }
+    
+    private List<Entry> collectEntries() {
+        final List<Entry> entries = new ArrayList<Entry>();
+        if (!Files.isDirectory(this.baseDirectory, new LinkOption[0])) {
+            return entries;
+        }
+        try (final DirectoryStream<Path> systemDirectories = Files.newDirectoryStream(this.baseDirectory)) {
+            for (final Path systemDirectory : systemDirectories) {
+                if (!Files.isDirectory(systemDirectory, new LinkOption[0])) {
+                    continue;
+                }
+                if (systemDirectory.getFileName().toString().matches("[0-9]+")) {
+                    entries.add(new Entry(systemDirectory, ""));
+                }
+                else {
+                    try (final DirectoryStream<Path> entryDirectories = Files.newDirectoryStream(systemDirectory)) {
+                        for (final Path entryDirectory : entryDirectories) {
+                            if (Files.isDirectory(entryDirectory, new LinkOption[0]) && entryDirectory.getFileName().toString().matches("[0-9a-f]{64}")) {
+                                entries.add(new Entry(entryDirectory, systemDirectory.getFileName().toString()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            NativeLibraryExtractionCleaner.log.warn("Failed to list native library extraction directories in {}.", (Object)this.baseDirectory, (Object)e);
+        }
+        return entries;
+    }
+    
+    private boolean delete(final Entry entry) {
+        try {
+            return NativeLibraryCache.deleteIfUnused(entry.path);
+        }
+        catch (IOException | RuntimeException e) {
+            NativeLibraryExtractionCleaner.log.debug("Could not remove native library extraction directory {}.", (Object)entry.path, (Object)e);
+            return false;
+        }
+    }
+    
+    private static Long parseOrDefault(final String value, final long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e) {
+            NativeLibraryExtractionCleaner.log.warn("Invalid native library cleanup setting {}, using {}.", (Object)value, (Object)defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)NativeLibraryExtractionCleaner.class);
+        scheduledDirectories = ConcurrentHashMap.newKeySet();
+    }
+    
+    private static class Entry
+    {
+        private final Path path;
+        private final String library;
+        private final long lastModified;
+        
+        private Entry(final Path path, final String systemName) {
+            this.path = path;
+            this.library = systemName + "/" + libraryNames(path);
+            this.lastModified = lastModified(path);
+        }
+        
+        private static String libraryNames(final Path path) {
+            final TreeSet<String> names = new TreeSet<String>();
+            try (final DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+                for (final Path file : files) {
+                    final String name = file.getFileName().toString();
+                    if (!name.startsWith(".") && !name.endsWith(".sha256") && !name.endsWith(".verified") && !name.endsWith(".tmp")) {
+                        names.add(name);
+                    }
+                }
+            }
+            catch (IOException | RuntimeException ex) {}
+            return String.join(",", names);
+        }
+        
+        private static long lastModified(final Path path) {
+            try {
+                return Files.getLastModifiedTime(path, new LinkOption[0]).toMillis();
+            }
+            catch (IOException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+    }
+}
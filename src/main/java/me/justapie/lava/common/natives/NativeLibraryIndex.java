@@ -0,0 +1,120 @@
+package me.justapie.lava.common.natives;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.io.InputStreamReader;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NativeLibraryIndex
+{
+    public static final String FILE_NAME = "index";
+    public static final NativeLibraryIndex EMPTY;
+    private final Map<String, Entry> entries;
+    
+    public NativeLibraryIndex(final Collection<Entry> entries) {
+        this.entries = new HashMap<String, Entry>();
+        for (final Entry entry : entries) {
+            this.entries.put(entry.systemName + "/" + entry.fileName, entry);
+        }
+    }
+    
+    public Entry get(final String systemName, final String fileName) {
+        return this.entries.get(systemName + "/" + fileName);
+    }
+    
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection((Collection<? extends Entry>)this.entries.values());
+    }
+    
+    public static NativeLibraryIndex read(final InputStream input) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            ++lineNumber;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] parts = line.split("\\s+");
+            if (parts.length != 4) {
+                throw new IOException("Invalid native library index entry on line " + lineNumber + ": " + line);
+            }
+            try {
+                final Entry entry = new Entry(parts[0], parts[1], Long.parseLong(parts[2]), parts[3].toLowerCase());
+                entries.put(entry.systemName + "/" + entry.fileName, entry);
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Invalid size in native library index on line " + lineNumber + ": " + line, e);
+            }
+        }
+        return new NativeLibraryIndex(entries.values());
+    }
+    
+    public static NativeLibraryIndex scan(final Path nativesDirectory) throws IOException {
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+        try (final DirectoryStream<Path> systemDirectories = Files.newDirectoryStream(nativesDirectory)) {
+            for (final Path systemDirectory : systemDirectories) {
+                if (!Files.isDirectory(systemDirectory, new LinkOption[0])) {
+                    continue;
+                }
+                try (final DirectoryStream<Path> files = Files.newDirectoryStream(systemDirectory)) {
+                    for (final Path file : files) {
+                        if (Files.isRegularFile(file, new LinkOption[0])) {
+                            final Entry entry = new Entry(systemDirectory.getFileName().toString(), file.getFileName().toString(), Files.size(file), NativeLibraryCache.sha256(file));
+                            entries.put(entry.systemName + "/" + entry.fileName, entry);
+                        }
+                    }
+                }
+            }
+        }
+        return new NativeLibraryIndex(entries.values());
+    }
+    
+    public void write(final OutputStream output) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        final List<Entry> sorted = new ArrayList<Entry>(this.entries.values());
+        sorted.sort(Comparator.comparing((Entry entry) -> entry.systemName).thenComparing(entry -> entry.fileName));
+        writer.write("# <system> <file> <size> <sha256>\n");
+        for (final Entry entry : sorted) {
+            writer.write(entry.systemName + " " + entry.fileName + " " + entry.size + " " + entry.sha256 + "\n");
+        }
+        writer.flush();
+    }
+    
+    static {
+        EMPTY = new NativeLibraryIndex(Collections.emptyList());
+    }
+    
+    public static class Entry
+    {
+        public final String systemName;
+        public final String fileName;
+        public final long size;
+        public final String sha256;
+        
+        public Entry(final String systemName, final String fileName, final long size, final String sha256) {
+            this.systemName = systemName;
+            this.fileName = fileName;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package me.justapie.lava.common.natives;
+
+public interface NativeLibraryLoadListener
+{
+    public static final NativeLibraryLoadListener NO_OP = new NativeLibraryLoadListener() {};
+    
+    default void onPhase(final String libraryName, final NativeLibraryLoadPhase phase, final long durationNanos, final long bytes) {
+    }
+    
+    default void onCacheLookup(final String libraryName, final boolean hit) {
+    }
+    
+    default void onLoaded(final String libraryName, final NativeLibraryLoadSource source, final long durationNanos) {
+    }
+    
+    default void onFailed(final String libraryName, final Throwable failure, final long durationNanos) {
+    }
+}
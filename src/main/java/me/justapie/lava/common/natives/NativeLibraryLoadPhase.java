@@ -0,0 +1,11 @@
+package me.justapie.lava.common.natives;
+
+public enum NativeLibraryLoadPhase
+{
+    DETECT, 
+    LOOKUP, 
+    HASH, 
+    VERIFY, 
+    EXTRACT, 
+    LINK;
+}
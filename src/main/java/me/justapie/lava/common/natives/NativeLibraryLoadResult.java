@@ -0,0 +1,29 @@
+package me.justapie.lava.common.natives;
+
+public class NativeLibraryLoadResult
+{
+    private final String libraryName;
+    private final RuntimeException failure;
+    
+    public NativeLibraryLoadResult(final String libraryName, final RuntimeException failure) {
+        this.libraryName = libraryName;
+        this.failure = failure;
+    }
+    
+    public String getLibraryName() {
+        return this.libraryName;
+    }
+    
+    public boolean isSuccess() {
+        return this.failure == null;
+    }
+    
+    public RuntimeException getFailure() {
+        return this.failure;
+    }
+    
+    @Override
+    public String toString() {
+        return this.libraryName + ((this.failure == null) ? ": loaded" : (": failed (" + this.failure.getMessage() + ")"));
+    }
+}
@@ -0,0 +1,9 @@
+package me.justapie.lava.common.natives;
+
+public enum NativeLibraryLoadSource
+{
+    EXPLICIT_PATH, 
+    EXPLICIT_DIRECTORY, 
+    EXTRACTED, 
+    SKIPPED;
+}
@@ -0,0 +1,136 @@
+package me.justapie.lava.common.natives;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.Map;
+
+public class NativeLibraryLoadStatistics implements NativeLibraryLoadListener
+{
+    private final Map<String, LibraryStatistics> libraries;
+    
+    public NativeLibraryLoadStatistics() {
+        this.libraries = new ConcurrentHashMap<String, LibraryStatistics>();
+    }
+    
+    @Override
+    public void onPhase(final String libraryName, final NativeLibraryLoadPhase phase, final long durationNanos, final long bytes) {
+        final LibraryStatistics statistics = this.get(libraryName);
+        statistics.phaseNanos.addAndGet(phase.ordinal(), durationNanos);
+        statistics.phaseBytes.addAndGet(phase.ordinal(), bytes);
+    }
+    
+    @Override
+    public void onCacheLookup(final String libraryName, final boolean hit) {
+        (hit ? this.get(libraryName).cacheHits : this.get(libraryName).cacheMisses).incrementAndGet();
+    }
+    
+    @Override
+    public void onLoaded(final String libraryName, final NativeLibraryLoadSource source, final long durationNanos) {
+        final LibraryStatistics statistics = this.get(libraryName);
+        statistics.source = source;
+        statistics.totalNanos.addAndGet(durationNanos);
+    }
+    
+    @Override
+    public void onFailed(final String libraryName, final Throwable failure, final long durationNanos) {
+        final LibraryStatistics statistics = this.get(libraryName);
+        statistics.failures.incrementAndGet();
+        statistics.totalNanos.addAndGet(durationNanos);
+    }
+    
+    public Map<String, LibraryStatistics> getLibraries() {
+        return Collections.unmodifiableMap(new TreeMap<String, LibraryStatistics>(this.libraries));
+    }
+    
+    public LibraryStatistics getLibrary(final String libraryName) {
+        return this.libraries.get(libraryName);
+    }
+    
+    public Map<String, Long> export() {
+        final Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (final Map.Entry<String, LibraryStatistics> entry : this.getLibraries().entrySet()) {
+            final String prefix = "natives." + entry.getKey() + ".";
+            final LibraryStatistics statistics = entry.getValue();
+            for (final NativeLibraryLoadPhase phase : NativeLibraryLoadPhase.values()) {
+                final String phaseName = phase.name().toLowerCase();
+                values.put(prefix + phaseName + ".nanos", statistics.getPhaseNanos(phase));
+                values.put(prefix + phaseName + ".bytes", statistics.getPhaseBytes(phase));
+            }
+            values.put(prefix + "cache.hits", statistics.getCacheHits());
+            values.put(prefix + "cache.misses", statistics.getCacheMisses());
+            values.put(prefix + "failures", statistics.getFailures());
+            values.put(prefix + "total.nanos", statistics.getTotalNanos());
+        }
+        return values;
+    }
+    
+    @Override
+    public String toString() {
+        return this.getLibraries().toString();
+    }
+    
+    private LibraryStatistics get(final String libraryName) {
+        return this.libraries.computeIfAbsent(libraryName, name -> new LibraryStatistics());
+    }
+    
+    public static class LibraryStatistics
+    {
+        private final AtomicLongArray phaseNanos;
+        private final AtomicLongArray phaseBytes;
+        private final AtomicLong cacheHits;
+        private final AtomicLong cacheMisses;
+        private final AtomicLong failures;
+        private final AtomicLong totalNanos;
+        private volatile NativeLibraryLoadSource source;
+        
+        private LibraryStatistics() {
+            this.phaseNanos = new AtomicLongArray(NativeLibraryLoadPhase.values().length);
+            this.phaseBytes = new AtomicLongArray(NativeLibraryLoadPhase.values().length);
+            this.cacheHits = new AtomicLong();
+            this.cacheMisses = new AtomicLong();
+            this.failures = new AtomicLong();
+            this.totalNanos = new AtomicLong();
+        }
+        
+        public long getPhaseNanos(final NativeLibraryLoadPhase phase) {
+            return this.phaseNanos.get(phase.ordinal());
+        }
+        
+        public long getPhaseBytes(final NativeLibraryLoadPhase phase) {
+            return this.phaseBytes.get(phase.ordinal());
+        }
+        
+        public long getCacheHits() {
+            return this.cacheHits.get();
+        }
+        
+        public long getCacheMisses() {
+            return this.cacheMisses.get();
+        }
+        
+        public long getFailures() {
+            return this.failures.get();
+        }
+        
+        public long getTotalNanos() {
+            return this.totalNanos.get();
+        }
+        
+        public NativeLibraryLoadSource getSource() {
+            return this.source;
+        }
+        
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder("{source=").append(this.source);
+            for (final NativeLibraryLoadPhase phase : NativeLibraryLoadPhase.values()) {
+                builder.append(", ").append(phase.name().toLowerCase()).append('=').append(this.getPhaseNanos(phase) / 1000L).append("us/").append(this.getPhaseBytes(phase)).append('B');
+            }
+            return builder.append(", cacheHits=").append(this.getCacheHits()).append(", cacheMisses=").append(this.getCacheMisses()).append(", failures=").append(this.getFailures()).append(", total=").append(this.getTotalNanos() / 1000L).append("us}").toString();
+        }
+    }
+}
@@ -1,20 +1,19 @@
 package me.justapie.lava.common.natives;
 
 import org.slf4j.LoggerFactory;
-import java.nio.file.attribute.PosixFilePermissions;
-import java.nio.file.attribute.FileAttribute;
-import java.nio.file.FileSystems;
-import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
-import java.io.InputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import org.apache.commons.io.IOUtils;
-import java.io.FileOutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import me.justapie.lava.common.natives.architecture.SystemType;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import me.justapie.lava.common.tools.DaemonThreadFactory;
+import me.justapie.lava.common.tools.ExecutorTools;
+import java.util.function.Supplier;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 
@@ -23,11 +22,14 @@ public class NativeLibraryLoader
     private static final Logger log;
     private static final String DEFAULT_PROPERTY_PREFIX = "lava.native.";
     private static final String DEFAULT_RESOURCE_ROOT = "/natives/";
+    private static volatile NativeLibraryLoadListener loadListener;
+    private static volatile Executor preloadExecutor;
     private final String libraryName;
     private final Predicate<SystemType> systemFilter;
     private final NativeLibraryProperties properties;
     private final NativeLibraryBinaryProvider binaryProvider;
     private final Object lock;
+    private final AtomicReference<CompletableFuture<Void>> pendingLoad;
     private volatile RuntimeException previousFailure;
     private volatile Boolean previousResult;
     
@@ -37,6 +39,7 @@ public class NativeLibraryLoader
         this.binaryProvider = binaryProvider;
         this.properties = properties;
         this.lock = new Object();
+        this.pendingLoad = new AtomicReference<CompletableFuture<Void>>();
     }
     
     public static NativeLibraryLoader create(final Class<?> classLoaderSample, final String libraryName) {
@@ -44,7 +47,19 @@ public class NativeLibraryLoader
     }
     
     public static NativeLibraryLoader createFiltered(final Class<?> classLoaderSample, final String libraryName, final Predicate<SystemType> systemFilter) {
-        return new NativeLibraryLoader(libraryName, systemFilter, new SystemNativeLibraryProperties(libraryName, "lava.native."), new ResourceNativeLibraryBinaryProvider(classLoaderSample, "/natives/"));
+        return new NativeLibraryLoader(libraryName, systemFilter, new SystemNativeLibraryProperties(libraryName, "lava.native."), new ChainedNativeLibraryBinaryProvider(new NativeLibraryBinaryProvider[] { new IndexedNativeLibraryBinaryProvider(classLoaderSample, "/natives/"), new ResourceNativeLibraryBinaryProvider(classLoaderSample, "/natives/") }));
+    }
+    
+    public static void setLoadListener(final NativeLibraryLoadListener listener) {
+        NativeLibraryLoader.loadListener = ((listener != null) ? listener : NativeLibraryLoadListener.NO_OP);
+    }
+    
+    public static NativeLibraryLoadListener getLoadListener() {
+        return NativeLibraryLoader.loadListener;
+    }
+    
+    public String getLibraryName() {
+        return this.libraryName;
     }
     
     public void load() {
@@ -53,7 +68,7 @@ public class NativeLibraryLoader
             synchronized (this.lock) {
                 result = this.previousResult;
                 if (result == null) {
-                    this.loadAndRemember();
+                    this.loadAndRemember(() -> this.link(this.prepare(null)), 0L);
                     return;
                 }
             }
@@ -63,79 +78,206 @@ public class NativeLibraryLoader
         }
     }
     
-    private void loadAndRemember() {
+    public CompletableFuture<Void> loadAsync() {
+        return this.loadAsync(getPreloadExecutor());
+    }
+    
+    public CompletableFuture<Void> loadAsync(final Executor executor) {
+        final CompletableFuture<Void> resolved = this.getResolvedFuture();
+        if (resolved != null) {
+            return resolved;
+        }
+        final CompletableFuture<Void> existing = this.pendingLoad.get();
+        if (existing != null) {
+            return existing;
+        }
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        if (!this.pendingLoad.compareAndSet(null, future)) {
+            return this.pendingLoad.get();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    this.load();
+                    if (this.previousResult) {
+                        future.complete(null);
+                    }
+                    else {
+                        future.completeExceptionally(this.previousFailure);
+                    }
+                }
+                catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            this.pendingLoad.compareAndSet(future, null);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    private CompletableFuture<Void> getResolvedFuture() {
+        final Boolean result = this.previousResult;
+        if (result == null) {
+            return null;
+        }
+        if (result) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        future.completeExceptionally(this.previousFailure);
+        return future;
+    }
+    
+    private static Executor getPreloadExecutor() {
+        Executor executor = NativeLibraryLoader.preloadExecutor;
+        if (executor == null) {
+            synchronized (NativeLibraryLoader.class) {
+                executor = NativeLibraryLoader.preloadExecutor;
+                if (executor == null) {
+                    executor = (NativeLibraryLoader.preloadExecutor = ExecutorTools.createEagerlyScalingExecutor(0, Runtime.getRuntime().availableProcessors(), 10000L, Integer.MAX_VALUE, new DaemonThreadFactory("native-preload")));
+                }
+            }
+        }
+        return executor;
+    }
+    
+    public boolean isLoaded() {
+        return Boolean.TRUE.equals(this.previousResult);
+    }
+    
+    public boolean isBinaryAvailable() {
+        if (this.properties.getLibraryPath() != null || this.properties.getLibraryDirectory() != null) {
+            return true;
+        }
+        try {
+            final SystemType systemType = this.detectMatchingSystemType(null);
+            return systemType != null && this.binaryProvider.getLibraryBinary(systemType, this.libraryName) != null;
+        }
+        catch (RuntimeException e) {
+            NativeLibraryLoader.log.debug("Native library {}: could not look up binary.", (Object)this.libraryName, (Object)e);
+            return false;
+        }
+    }
+    
+    boolean isResolved() {
+        return this.previousResult != null;
+    }
+    
+    void loadPrepared(final PreparedLibrary prepared, final Throwable preparationFailure) {
+        if (this.previousResult == null) {
+            synchronized (this.lock) {
+                if (this.previousResult == null) {
+                    this.loadAndRemember(() -> {
+                        if (preparationFailure instanceof Error) {
+                            throw (Error)preparationFailure;
+                        }
+                        else if (preparationFailure instanceof RuntimeException) {
+                            throw (RuntimeException)preparationFailure;
+                        }
+                        else if (preparationFailure != null) {
+                            throw new RuntimeException(preparationFailure);
+                        }
+                        return this.link(prepared);
+                    }, (prepared != null) ? prepared.prepareNanos : 0L);
+                }
+            }
+        }
+        this.load();
+    }
+    
+    private void loadAndRemember(final Supplier<PreparedLibrary> loadAction, final long preparedNanos) {
         NativeLibraryLoader.log.info("Native library {}: loading with filter {}", (Object)this.libraryName, (Object)this.systemFilter);
+        final NativeLibraryLoadListener listener = NativeLibraryLoader.loadListener;
+        final long startTime = System.nanoTime();
         try {
-            this.loadInternal();
+            final PreparedLibrary prepared = loadAction.get();
             this.previousResult = true;
+            listener.onLoaded(this.libraryName, (prepared != null) ? prepared.source : NativeLibraryLoadSource.SKIPPED, System.nanoTime() - startTime + preparedNanos);
         }
         catch (Throwable e) {
             NativeLibraryLoader.log.error("Native library {}: loading failed.", e);
             this.previousFailure = new RuntimeException(e);
             this.previousResult = false;
+            listener.onFailed(this.libraryName, e, System.nanoTime() - startTime + preparedNanos);
         }
     }
     
-    private void loadInternal() {
+    PreparedLibrary prepare(final SystemType detectedSystemType) {
+        final long startTime = System.nanoTime();
         final String explicitPath = this.properties.getLibraryPath();
         if (explicitPath != null) {
             NativeLibraryLoader.log.debug("Native library {}: explicit path provided {}", (Object)this.libraryName, (Object)explicitPath);
-            this.loadFromFile(Paths.get(explicitPath, new String[0]).toAbsolutePath());
-        }
-        else {
-            final SystemType systemType = this.detectMatchingSystemType();
-            if (systemType != null) {
-                final String explicitDirectory = this.properties.getLibraryDirectory();
-                if (explicitDirectory != null) {
-                    NativeLibraryLoader.log.debug("Native library {}: explicit directory provided {}", (Object)this.libraryName, (Object)explicitDirectory);
-                    this.loadFromFile(Paths.get(explicitDirectory, systemType.formatLibraryName(this.libraryName)).toAbsolutePath());
-                }
-                else {
-                    this.loadFromFile(this.extractLibraryFromResources(systemType));
-                }
-            }
+            return new PreparedLibrary(null, Paths.get(explicitPath, new String[0]).toAbsolutePath(), NativeLibraryLoadSource.EXPLICIT_PATH, false, startTime);
+        }
+        final SystemType systemType = this.detectMatchingSystemType(detectedSystemType);
+        NativeLibraryLoader.loadListener.onPhase(this.libraryName, NativeLibraryLoadPhase.DETECT, System.nanoTime() - startTime, 0L);
+        if (systemType == null) {
+            return null;
+        }
+        final String explicitDirectory = this.properties.getLibraryDirectory();
+        if (explicitDirectory != null) {
+            NativeLibraryLoader.log.debug("Native library {}: explicit directory provided {}", (Object)this.libraryName, (Object)explicitDirectory);
+            return new PreparedLibrary(systemType, Paths.get(explicitDirectory, systemType.formatLibraryName(this.libraryName)).toAbsolutePath(), NativeLibraryLoadSource.EXPLICIT_DIRECTORY, false, startTime);
+        }
+        final Path memoryDirectory = this.detectMemoryExtractionBaseDirectory();
+        if (memoryDirectory != null) {
+            return new PreparedLibrary(systemType, this.extractLibraryFromResources(systemType, memoryDirectory), NativeLibraryLoadSource.EXTRACTED, true, startTime);
+        }
+        return new PreparedLibrary(systemType, this.extractLibraryFromResources(systemType, this.detectExtractionBaseDirectory()), NativeLibraryLoadSource.EXTRACTED, false, startTime);
+    }
+    
+    private PreparedLibrary link(final PreparedLibrary prepared) {
+        if (prepared == null) {
+            return null;
+        }
+        if (!prepared.memoryBacked) {
+            this.loadFromFile(prepared.path);
+            return prepared;
+        }
+        try {
+            this.loadFromFile(prepared.path);
+        }
+        catch (UnsatisfiedLinkError e) {
+            NativeLibraryLoader.log.warn("Native library {}: loading from memory-backed directory failed, it may be mounted noexec - extracting to disk instead.", (Object)this.libraryName, (Object)e);
+            this.loadFromFile(this.extractLibraryFromResources(prepared.systemType, this.detectExtractionBaseDirectory()));
         }
+        return prepared;
     }
     
     private void loadFromFile(final Path libraryFilePath) {
         NativeLibraryLoader.log.debug("Native library {}: attempting to load library at {}", (Object)this.libraryName, (Object)libraryFilePath);
+        final long startTime = System.nanoTime();
         System.load(libraryFilePath.toAbsolutePath().toString());
+        NativeLibraryLoader.loadListener.onPhase(this.libraryName, NativeLibraryLoadPhase.LINK, System.nanoTime() - startTime, 0L);
         NativeLibraryLoader.log.info("Native library {}: successfully loaded.", (Object)this.libraryName);
     }
     
-    private Path extractLibraryFromResources(final SystemType systemType) {
-        try (final InputStream libraryStream = this.binaryProvider.getLibraryStream(systemType, this.libraryName)) {
-            if (libraryStream == null) {
-                throw new UnsatisfiedLinkError("Required library was not found");
-            }
-            final Path extractedLibraryPath = this.prepareExtractionDirectory().resolve(systemType.formatLibraryName(this.libraryName));
-            try (final FileOutputStream fileStream = new FileOutputStream(extractedLibraryPath.toFile())) {
-                IOUtils.copy(libraryStream, (OutputStream)fileStream);
-            }
-            return extractedLibraryPath;
+    private Path extractLibraryFromResources(final SystemType systemType, final Path baseDirectory) {
+        try {
+            final Path libraryPath = new NativeLibraryCache(baseDirectory, this.libraryName, NativeLibraryLoader.loadListener, Boolean.parseBoolean(this.properties.getVerifyCachedCopies())).extract(systemType, this.binaryProvider);
+            NativeLibraryExtractionCleaner.cleanInBackgroundOnce(baseDirectory, this.properties);
+            return libraryPath;
         }
         catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
     
-    private Path prepareExtractionDirectory() throws IOException {
-        final Path extractionDirectory = this.detectExtractionBaseDirectory().resolve(String.valueOf(System.currentTimeMillis()));
-        if (!Files.isDirectory(extractionDirectory, new LinkOption[0])) {
-            NativeLibraryLoader.log.debug("Native library {}: extraction directory {} does not exist, creating.", (Object)this.libraryName, (Object)extractionDirectory);
-            try {
-                createDirectoriesWithFullPermissions(extractionDirectory);
-                return extractionDirectory;
-            }
-            catch (FileAlreadyExistsException ex) {
-                return extractionDirectory;
-            }
-            catch (IOException e) {
-                throw new IOException("Failed to create directory for unpacked native library.", e);
-            }
+    private Path detectMemoryExtractionBaseDirectory() {
+        if (this.properties.getExtractionPath() != null || !Boolean.parseBoolean(this.properties.getExtractToMemory())) {
+            return null;
         }
-        NativeLibraryLoader.log.debug("Native library {}: extraction directory {} already exists, using.", (Object)this.libraryName, (Object)extractionDirectory);
-        return extractionDirectory;
+        final Path memoryDirectory = Paths.get("/dev/shm", new String[0]);
+        if (!Files.isDirectory(memoryDirectory, new LinkOption[0]) || !Files.isWritable(memoryDirectory)) {
+            NativeLibraryLoader.log.info("Native library {}: extraction to memory requested, but {} is not available - using disk.", (Object)this.libraryName, (Object)memoryDirectory);
+            return null;
+        }
+        final Path path = memoryDirectory.resolve(getUserDirectoryName()).toAbsolutePath();
+        NativeLibraryLoader.log.debug("Native library {}: detected {} as memory-backed base directory for extraction.", (Object)this.libraryName, (Object)path);
+        return path;
     }
     
     private Path detectExtractionBaseDirectory() {
@@ -144,15 +286,19 @@ public class NativeLibraryLoader
             NativeLibraryLoader.log.debug("Native library {}: explicit extraction path provided - {}", (Object)this.libraryName, (Object)explicitExtractionBase);
             return Paths.get(explicitExtractionBase, new String[0]).toAbsolutePath();
         }
-        final Path path = Paths.get(System.getProperty("java.io.tmpdir", "/tmp"), "lava-jni-natives").toAbsolutePath();
+        final Path path = Paths.get(System.getProperty("java.io.tmpdir", "/tmp"), getUserDirectoryName()).toAbsolutePath();
         NativeLibraryLoader.log.debug("Native library {}: detected {} as base directory for extraction.", (Object)this.libraryName, (Object)path);
         return path;
     }
     
-    private SystemType detectMatchingSystemType() {
+    private static String getUserDirectoryName() {
+        return "lava-jni-natives-" + System.getProperty("user.name", "unknown").replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+    
+    private SystemType detectMatchingSystemType(final SystemType detectedSystemType) {
         SystemType systemType;
         try {
-            systemType = SystemType.detect(this.properties);
+            systemType = ((detectedSystemType != null && this.properties.getSystemName() == null && this.properties.getArchitectureName() == null && this.properties.getCpuFeatureLevel() == null) ? detectedSystemType : SystemType.detect(this.properties));
         }
         catch (IllegalArgumentException e) {
             if (this.systemFilter != null) {
@@ -168,17 +314,25 @@ public class NativeLibraryLoader
         return systemType;
     }
     
-    private static void createDirectoriesWithFullPermissions(final Path path) throws IOException {
-        final boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
-        if (!isPosix) {
-            Files.createDirectories(path, (FileAttribute<?>[])new FileAttribute[0]);
-        }
-        else {
-            Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxrwxrwx")));
-        }
-    }
-    
     static {
         log = LoggerFactory.getLogger((Class)NativeLibraryLoader.class);
+        NativeLibraryLoader.loadListener = NativeLibraryLoadListener.NO_OP;
+    }
+    
+    static class PreparedLibrary
+    {
+        private final SystemType systemType;
+        private final Path path;
+        private final NativeLibraryLoadSource source;
+        private final boolean memoryBacked;
+        private final long prepareNanos;
+        
+        private PreparedLibrary(final SystemType systemType, final Path path, final NativeLibraryLoadSource source, final boolean memoryBacked, final long startTime) {
+            this.systemType = systemType;
+            this.path = path;
+            this.source = source;
+            this.memoryBacked = memoryBacked;
+            this.prepareNanos = System.nanoTime() - startTime;
+        }
     }
 }
@@ -8,6 +8,22 @@ public interface NativeLibraryProperties
     
     String getExtractionPath();
     
+    default String getExtractToMemory() {
+        return null;
+    }
+    
+    default String getCleanupRetainCount() {
+        return null;
+    }
+    
+    default String getCleanupRetainAge() {
+        return null;
+    }
+    
+    default String getVerifyCachedCopies() {
+        return null;
+    }
+    
     String getSystemName();
     
     String getLibraryFileNamePrefix();
@@ -15,4 +31,8 @@ public interface NativeLibraryProperties
     String getLibraryFileNameSuffix();
     
     String getArchitectureName();
+    
+    default String getCpuFeatureLevel() {
+        return null;
+    }
 }
@@ -0,0 +1,141 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import me.justapie.lava.common.tools.DaemonThreadFactory;
+import me.justapie.lava.common.tools.ExecutorTools;
+import me.justapie.lava.common.natives.architecture.SystemType;
+import org.slf4j.Logger;
+
+public class NativeLibraryRegistry
+{
+    private static final Logger log;
+    private final NativeLibraryProperties properties;
+    private final List<Registration> registrations;
+    private final Map<NativeLibraryLoader, Registration> registrationsByLoader;
+    
+    public NativeLibraryRegistry() {
+        this(new SystemNativeLibraryProperties(null, "lava.native."));
+    }
+    
+    public NativeLibraryRegistry(final NativeLibraryProperties properties) {
+        this.properties = properties;
+        this.registrations = new ArrayList<Registration>();
+        this.registrationsByLoader = new IdentityHashMap<NativeLibraryLoader, Registration>();
+    }
+    
+    public synchronized NativeLibraryRegistry register(final NativeLibraryLoader loader, final NativeLibraryLoader... dependencies) {
+        if (this.registrationsByLoader.containsKey(loader)) {
+            throw new IllegalArgumentException("Native library " + loader.getLibraryName() + " is already registered.");
+        }
+        final List<Registration> dependencyRegistrations = new ArrayList<Registration>();
+        for (final NativeLibraryLoader dependency : dependencies) {
+            final Registration dependencyRegistration = this.registrationsByLoader.get(dependency);
+            if (dependencyRegistration == null) {
+                throw new IllegalArgumentException("Dependency " + dependency.getLibraryName() + " of native library " + loader.getLibraryName() + " must be registered before it.");
+            }
+            dependencyRegistrations.add(dependencyRegistration);
+        }
+        final Registration registration = new Registration(loader, dependencyRegistrations);
+        this.registrations.add(registration);
+        this.registrationsByLoader.put(loader, registration);
+        return this;
+    }
+    
+    public synchronized List<NativeLibraryLoadResult> loadAll() {
+        final SystemType systemType = this.detectSystemType();
+        final List<Future<NativeLibraryLoader.PreparedLibrary>> preparations = new ArrayList<Future<NativeLibraryLoader.PreparedLibrary>>(Collections.nCopies(this.registrations.size(), (Future<NativeLibraryLoader.PreparedLibrary>)null));
+        final int threadCount = Math.max(1, Math.min(this.registrations.size(), Runtime.getRuntime().availableProcessors()));
+        final ThreadPoolExecutor executor = ExecutorTools.createEagerlyScalingExecutor(0, threadCount, 1000L, this.registrations.size() + 1, new DaemonThreadFactory("native-loader"));
+        try {
+            for (int i = 0; i < this.registrations.size(); ++i) {
+                final NativeLibraryLoader loader = this.registrations.get(i).loader;
+                if (!loader.isResolved()) {
+                    preparations.set(i, executor.submit(() -> loader.prepare(systemType)));
+                }
+            }
+            final Map<Registration, NativeLibraryLoadResult> results = new IdentityHashMap<Registration, NativeLibraryLoadResult>();
+            final List<NativeLibraryLoadResult> orderedResults = new ArrayList<NativeLibraryLoadResult>();
+            for (int j = 0; j < this.registrations.size(); ++j) {
+                final Registration registration = this.registrations.get(j);
+                final NativeLibraryLoadResult result = this.link(registration, preparations.get(j), results);
+                results.put(registration, result);
+                orderedResults.add(result);
+            }
+            return orderedResults;
+        }
+        finally {
+            ExecutorTools.shutdownExecutor(executor, "native library registry");
+        }
+    }
+    
+    private NativeLibraryLoadResult link(final Registration registration, final Future<NativeLibraryLoader.PreparedLibrary> preparation, final Map<Registration, NativeLibraryLoadResult> results) {
+        final NativeLibraryLoader loader = registration.loader;
+        for (final Registration dependency : registration.dependencies) {
+            final NativeLibraryLoadResult dependencyResult = results.get(dependency);
+            if (!dependencyResult.isSuccess()) {
+                if (preparation != null) {
+                    preparation.cancel(true);
+                }
+                return new NativeLibraryLoadResult(loader.getLibraryName(), new IllegalStateException("Dependency " + dependencyResult.getLibraryName() + " failed to load.", dependencyResult.getFailure()));
+            }
+        }
+        try {
+            if (preparation == null) {
+                loader.load();
+            }
+            else {
+                NativeLibraryLoader.PreparedLibrary prepared = null;
+                Throwable preparationFailure = null;
+                try {
+                    prepared = preparation.get();
+                }
+                catch (ExecutionException e) {
+                    preparationFailure = e.getCause();
+                }
+                loader.loadPrepared(prepared, preparationFailure);
+            }
+            return new NativeLibraryLoadResult(loader.getLibraryName(), null);
+        }
+        catch (InterruptedException e2) {
+            Thread.currentThread().interrupt();
+            return new NativeLibraryLoadResult(loader.getLibraryName(), new IllegalStateException("Interrupted while loading native library.", e2));
+        }
+        catch (RuntimeException e3) {
+            return new NativeLibraryLoadResult(loader.getLibraryName(), e3);
+        }
+    }
+    
+    private SystemType detectSystemType() {
+        try {
+            return SystemType.detect(this.properties);
+        }
+        catch (IllegalArgumentException e) {
+            NativeLibraryRegistry.log.debug("Could not detect system type for native library registry, leaving detection to each library.", (Throwable)e);
+            return null;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)NativeLibraryRegistry.class);
+    }
+    
+    private static class Registration
+    {
+        private final NativeLibraryLoader loader;
+        private final List<Registration> dependencies;
+        
+        private Registration(final NativeLibraryLoader loader, final List<Registration> dependencies) {
+            this.loader = loader;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -1,46 +1,117 @@
 package me.justapie.lava.common.natives;
 
-import org.slf4j.LoggerFactory;
-import java.util.concurrent.atomic.AtomicBoolean;
-import org.slf4j.Logger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.nio.ByteBuffer;
 
 public abstract class NativeResourceHolder
 {
-    private static final Logger log;
-    private final AtomicBoolean released;
+    private static final AtomicIntegerFieldUpdater<NativeResourceHolder> stateUpdater;
+    private static final AtomicIntegerFieldUpdater<NativeResourceHolder> pooledUpdater;
+    private final NativeResourceReclaimer.Reclaimable reclaimable;
+    private volatile int state;
+    private volatile int pooled;
     
     public NativeResourceHolder() {
-        this.released = new AtomicBoolean();
+        this.reclaimable = NativeResourceReclaimer.register(this);
+    }
+    
+    protected NativeResourceHolder(final Runnable reclaimAction) {
+        this();
+        this.reclaimable.setReclaimAction(reclaimAction);
     }
     
     protected void checkNotReleased() {
-        if (this.released.get()) {
+        if (this.isReleased()) {
             throw new IllegalStateException("Cannot use the decoder after closing it.");
         }
     }
     
-    public void close() {
-        this.closeInternal(false);
+    public boolean tryRetain() {
+        int current;
+        do {
+            current = this.state;
+            if ((current & 0x1) != 0x0) {
+                return false;
+            }
+        } while (!NativeResourceHolder.stateUpdater.compareAndSet(this, current, current + 2));
+        return true;
     }
     
-    protected abstract void freeResources();
+    public void retain() {
+        if (!this.tryRetain()) {
+            throw new IllegalStateException("Cannot use the decoder after closing it.");
+        }
+    }
     
-    private synchronized void closeInternal(final boolean inFinalizer) {
-        if (this.released.compareAndSet(false, true)) {
-            if (inFinalizer) {
-                NativeResourceHolder.log.warn("Should have been closed before finalization ({}).", (Object)this.getClass().getName());
+    public void release() {
+        int current;
+        int updated;
+        do {
+            current = this.state;
+            if (current < 2) {
+                throw new IllegalStateException("Released more usages than were retained.");
             }
-            this.freeResources();
+            updated = current - 2;
+        } while (!NativeResourceHolder.stateUpdater.compareAndSet(this, current, updated));
+        if (updated == 1) {
+            this.free();
+        }
+    }
+    
+    public void close() {
+        int current;
+        do {
+            current = this.state;
+            if ((current & 0x1) != 0x0) {
+                return;
+            }
+        } while (!NativeResourceHolder.stateUpdater.compareAndSet(this, current, current | 0x1));
+        if (current == 0) {
+            this.free();
         }
     }
     
-    @Override
-    protected void finalize() throws Throwable {
-        super.finalize();
-        this.closeInternal(true);
+    protected abstract void freeResources();
+    
+    protected boolean resetResources() {
+        return false;
+    }
+    
+    boolean isReleased() {
+        return (this.state & 0x1) != 0x0 || this.reclaimable.isReleased();
+    }
+    
+    boolean markPooled() {
+        return NativeResourceHolder.pooledUpdater.compareAndSet(this, 0, 1);
+    }
+    
+    void clearPooled() {
+        this.pooled = 0;
+    }
+    
+    protected final ByteBuffer allocateDirectBuffer(final DirectBufferArena arena, final int capacity) {
+        final ByteBuffer buffer = arena.allocate(capacity);
+        this.reclaimable.addBuffer(arena, buffer);
+        return buffer;
+    }
+    
+    protected final void reportNativeBytes(final long bytes) {
+        this.reclaimable.addNativeBytes(bytes);
+    }
+    
+    protected final void registerReclaimAction(final Runnable reclaimAction) {
+        this.reclaimable.setReclaimAction(reclaimAction);
+    }
+    
+    private synchronized void free() {
+        if (this.reclaimable.release()) {
+            this.freeResources();
+            this.reclaimable.returnBuffers();
+        }
     }
     
     static {
-        log = LoggerFactory.getLogger((Class)NativeResourceHolder.class);
+        stateUpdater = AtomicIntegerFieldUpdater.newUpdater(NativeResourceHolder.class, "state");
+        pooledUpdater = AtomicIntegerFieldUpdater.newUpdater(NativeResourceHolder.class, "pooled");
     }
 }
@@ -0,0 +1,152 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.Map;
+import org.slf4j.Logger;
+
+public class NativeResourceLeakDetector
+{
+    private static final Logger log;
+    private static final String LEVEL_PROPERTY = "lava.native.leakDetection";
+    private static final String INTERVAL_PROPERTY = "lava.native.leakDetectionInterval";
+    private static final Map<String, ResourceStatistics> resources;
+    private static volatile Level level;
+    private static volatile int samplingInterval;
+    
+    private NativeResourceLeakDetector() {
+    }
+    
+    public static Level getLevel() {
+        return NativeResourceLeakDetector.level;
+    }
+    
+    public static void setLevel(final Level level) {
+        NativeResourceLeakDetector.level = ((level != null) ? level : Level.DISABLED);
+    }
+    
+    public static int getSamplingInterval() {
+        return NativeResourceLeakDetector.samplingInterval;
+    }
+    
+    public static void setSamplingInterval(final int samplingInterval) {
+        if (samplingInterval < 1) {
+            throw new IllegalArgumentException("Sampling interval must be at least 1.");
+        }
+        NativeResourceLeakDetector.samplingInterval = samplingInterval;
+    }
+    
+    public static Map<String, ResourceStatistics> getResources() {
+        return Collections.unmodifiableMap(new TreeMap<String, ResourceStatistics>(NativeResourceLeakDetector.resources));
+    }
+    
+    public static ResourceStatistics getResource(final Class<?> resourceClass) {
+        return NativeResourceLeakDetector.resources.get(resourceClass.getName());
+    }
+    
+    static ResourceStatistics track(final String className) {
+        if (NativeResourceLeakDetector.level == Level.DISABLED) {
+            return null;
+        }
+        final ResourceStatistics statistics = NativeResourceLeakDetector.resources.computeIfAbsent(className, name -> new ResourceStatistics());
+        statistics.live.incrementAndGet();
+        statistics.created.incrementAndGet();
+        return statistics;
+    }
+    
+    static Throwable captureAllocationSite(final String className) {
+        final Level currentLevel = NativeResourceLeakDetector.level;
+        if (currentLevel == Level.PARANOID || (currentLevel == Level.SAMPLED && ThreadLocalRandom.current().nextInt(NativeResourceLeakDetector.samplingInterval) == 0)) {
+            return new AllocationSite(className);
+        }
+        return null;
+    }
+    
+    private static Level parseLevel(final String value) {
+        if (value == null) {
+            return Level.SAMPLED;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            NativeResourceLeakDetector.log.warn("Unknown native resource leak detection level {}, using {}.", (Object)value, (Object)Level.SAMPLED);
+            return Level.SAMPLED;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)NativeResourceLeakDetector.class);
+        resources = new ConcurrentHashMap<String, ResourceStatistics>();
+        level = parseLevel(System.getProperty("lava.native.leakDetection"));
+        samplingInterval = Math.max(1, Integer.getInteger("lava.native.leakDetectionInterval", 100));
+    }
+    
+    public enum Level
+    {
+        DISABLED, 
+        SAMPLED, 
+        PARANOID;
+    }
+    
+    public static class ResourceStatistics
+    {
+        private final AtomicLong live;
+        private final AtomicLong created;
+        private final AtomicLong leaked;
+        private final AtomicLong nativeBytes;
+        
+        private ResourceStatistics() {
+            this.live = new AtomicLong();
+            this.created = new AtomicLong();
+            this.leaked = new AtomicLong();
+            this.nativeBytes = new AtomicLong();
+        }
+        
+        void addNativeBytes(final long bytes) {
+            this.nativeBytes.addAndGet(bytes);
+        }
+        
+        void onReleased(final long bytes, final boolean leaked) {
+            this.live.decrementAndGet();
+            this.nativeBytes.addAndGet(-bytes);
+            if (leaked) {
+                this.leaked.incrementAndGet();
+            }
+        }
+        
+        public long getLive() {
+            return this.live.get();
+        }
+        
+        public long getCreated() {
+            return this.created.get();
+        }
+        
+        public long getLeaked() {
+            return this.leaked.get();
+        }
+        
+        public long getNativeBytes() {
+            return this.nativeBytes.get();
+        }
+        
+        @Override
+        public String toString() {
+            return "{live=" + this.getLive() + ", created=" + this.getCreated() + ", leaked=" + this.getLeaked() + ", nativeBytes=" + this.getNativeBytes() + "}";
+        }
+    }
+    
+    private static class AllocationSite extends Throwable
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private AllocationSite(final String className) {
+            super("Allocation site of " + className, null, false, true);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.List;
+import org.slf4j.Logger;
+
+public class NativeResourcePool<T extends NativeResourceHolder>
+{
+    private static final Logger log;
+    private final Supplier<T> factory;
+    private final int maximumIdle;
+    private final int threadCacheSize;
+    private final long maximumIdleNanos;
+    private final ThreadLocal<ThreadCache<T>> threadCache;
+    private final List<ThreadCache<T>> threadCaches;
+    private final ConcurrentLinkedDeque<Entry<T>> sharedEntries;
+    private final AtomicInteger idleCount;
+    private final AtomicLong lastEviction;
+    private volatile boolean closed;
+    
+    public NativeResourcePool(final Supplier<T> factory, final int maximumIdle, final int threadCacheSize, final long maximumIdleTime, final TimeUnit unit) {
+        if (maximumIdle < 0 || threadCacheSize < 0) {
+            throw new IllegalArgumentException("Pool sizes must not be negative.");
+        }
+        this.factory = factory;
+        this.maximumIdle = maximumIdle;
+        this.threadCacheSize = threadCacheSize;
+        this.maximumIdleNanos = unit.toNanos(maximumIdleTime);
+        this.threadCaches = new CopyOnWriteArrayList<ThreadCache<T>>();
+        this.threadCache = ThreadLocal.withInitial(this::createThreadCache);
+        this.sharedEntries = new ConcurrentLinkedDeque<Entry<T>>();
+        this.idleCount = new AtomicInteger();
+        this.lastEviction = new AtomicLong(System.nanoTime());
+    }
+    
+    public T acquire() {
+        if (this.closed) {
+            throw new IllegalStateException("Cannot acquire from a closed pool.");
+        }
+        final long now = System.nanoTime();
+        Entry<T> entry;
+        while ((entry = this.pollIdle()) != null) {
+            if (now - entry.releasedAt <= this.maximumIdleNanos) {
+                entry.holder.clearPooled();
+                return entry.holder;
+            }
+            entry.holder.close();
+        }
+        return this.factory.get();
+    }
+    
+    public void release(final T holder) {
+        if (holder == null || holder.isReleased()) {
+            return;
+        }
+        if (!holder.markPooled()) {
+            throw new IllegalStateException("Native resource " + holder.getClass().getName() + " was already released to the pool.");
+        }
+        if (this.closed || !this.resetQuietly(holder)) {
+            holder.close();
+            return;
+        }
+        if (this.idleCount.incrementAndGet() > this.maximumIdle) {
+            this.idleCount.decrementAndGet();
+            holder.close();
+            return;
+        }
+        final long now = System.nanoTime();
+        final Entry<T> entry = new Entry<T>(holder, now);
+        final ThreadCache<T> cache = (this.threadCacheSize > 0) ? this.threadCache.get() : null;
+        if (cache == null || !cache.offer(entry)) {
+            this.sharedEntries.offerFirst(entry);
+        }
+        if (this.closed) {
+            this.drain();
+        }
+        else {
+            this.evictIdleIfDue(now);
+        }
+    }
+    
+    public int evictIdle() {
+        final long now = System.nanoTime();
+        int evicted = 0;
+        for (final ThreadCache<T> cache : this.threadCaches) {
+            for (int i = 0; i < cache.slots.length(); ++i) {
+                final Entry<T> entry = cache.slots.get(i);
+                if (entry != null && now - entry.releasedAt > this.maximumIdleNanos && cache.slots.compareAndSet(i, entry, null)) {
+                    this.idleCount.decrementAndGet();
+                    entry.holder.close();
+                    ++evicted;
+                }
+            }
+            if (cache.owner.get() == null && cache.isEmpty()) {
+                this.threadCaches.remove(cache);
+            }
+        }
+        final Iterator<Entry<T>> iterator = this.sharedEntries.descendingIterator();
+        while (iterator.hasNext()) {
+            final Entry<T> entry2 = iterator.next();
+            if (now - entry2.releasedAt > this.maximumIdleNanos && this.sharedEntries.removeFirstOccurrence(entry2)) {
+                this.idleCount.decrementAndGet();
+                entry2.holder.close();
+                ++evicted;
+            }
+        }
+        if (evicted > 0) {
+            NativeResourcePool.log.debug("Evicted {} idle native resources from pool.", (Object)evicted);
+        }
+        return evicted;
+    }
+    
+    public int getIdleCount() {
+        return this.idleCount.get();
+    }
+    
+    public void close() {
+        this.closed = true;
+        this.drain();
+    }
+    
+    private void drain() {
+        for (final ThreadCache<T> cache : this.threadCaches) {
+            for (int i = 0; i < cache.slots.length(); ++i) {
+                final Entry<T> entry = cache.slots.getAndSet(i, null);
+                if (entry != null) {
+                    this.idleCount.decrementAndGet();
+                    entry.holder.close();
+                }
+            }
+        }
+        Entry<T> entry2;
+        while ((entry2 = this.sharedEntries.pollFirst()) != null) {
+            this.idleCount.decrementAndGet();
+            entry2.holder.close();
+        }
+    }
+    
+    private Entry<T> pollIdle() {
+        ThreadCache<T> ownCache = null;
+        if (this.threadCacheSize > 0) {
+            ownCache = this.threadCache.get();
+            final Entry<T> entry = ownCache.poll();
+            if (entry != null) {
+                this.idleCount.decrementAndGet();
+                return entry;
+            }
+        }
+        final Entry<T> entry2 = this.sharedEntries.pollFirst();
+        if (entry2 != null) {
+            this.idleCount.decrementAndGet();
+            return entry2;
+        }
+        return (ownCache != null && this.idleCount.get() > 0) ? this.stealIdle(ownCache) : null;
+    }
+    
+    private Entry<T> stealIdle(final ThreadCache<T> ownCache) {
+        for (final ThreadCache<T> cache : this.threadCaches) {
+            if (cache != ownCache) {
+                final Entry<T> entry = cache.poll();
+                if (entry != null) {
+                    this.idleCount.decrementAndGet();
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private boolean resetQuietly(final T holder) {
+        try {
+            return holder.resetResources();
+        }
+        catch (Throwable e) {
+            NativeResourcePool.log.warn("Resetting native resource {} for reuse failed, freeing it instead.", (Object)holder.getClass().getName(), (Object)e);
+            return false;
+        }
+    }
+    
+    private void evictIdleIfDue(final long now) {
+        final long last = this.lastEviction.get();
+        if (now - last > this.maximumIdleNanos / 2L && this.lastEviction.compareAndSet(last, now)) {
+            this.evictIdle();
+        }
+    }
+    
+    private ThreadCache<T> createThreadCache() {
+        final ThreadCache<T> cache = new ThreadCache<T>(Thread.currentThread(), this.threadCacheSize);
+        this.threadCaches.add(cache);
+        return cache;
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)NativeResourcePool.class);
+    }
+    
+    private static class Entry<T>
+    {
+        private final T holder;
+        private final long releasedAt;
+        
+        private Entry(final T holder, final long releasedAt) {
+            this.holder = holder;
+            this.releasedAt = releasedAt;
+        }
+    }
+    
+    private static class ThreadCache<T>
+    {
+        private final WeakReference<Thread> owner;
+        private final AtomicReferenceArray<Entry<T>> slots;
+        
+        private ThreadCache(final Thread owner, final int size) {
+            this.owner = new WeakReference<Thread>(owner);
+            this.slots = new AtomicReferenceArray<Entry<T>>(size);
+        }
+        
+        private boolean offer(final Entry<T> entry) {
+            for (int i = 0; i < this.slots.length(); ++i) {
+                if (this.slots.get(i) == null && this.slots.compareAndSet(i, null, entry)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private Entry<T> poll() {
+            for (int i = this.slots.length() - 1; i >= 0; --i) {
+                if (this.slots.get(i) != null) {
+                    final Entry<T> entry = this.slots.getAndSet(i, null);
+                    if (entry != null) {
+                        return entry;
+                    }
+                }
+            }
+            return null;
+        }
+        
+        private boolean isEmpty() {
+            for (int i = 0; i < this.slots.length(); ++i) {
+                if (this.slots.get(i) != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
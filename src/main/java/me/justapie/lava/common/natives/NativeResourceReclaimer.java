@@ -0,0 +1,144 @@
+package me.justapie.lava.common.natives;
+
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.PhantomReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.nio.ByteBuffer;
+import me.justapie.lava.common.tools.DaemonThreadFactory;
+import org.slf4j.Logger;
+
+final class NativeResourceReclaimer
+{
+    private static final Logger log;
+    private static final ReferenceQueue<Object> queue;
+    private static final Set<Reclaimable> liveReferences;
+    private static final AtomicBoolean threadStarted;
+    
+    private NativeResourceReclaimer() {
+    }
+    
+    static Reclaimable register(final Object holder) {
+        if (!NativeResourceReclaimer.threadStarted.get() && NativeResourceReclaimer.threadStarted.compareAndSet(false, true)) {
+            new DaemonThreadFactory("native-reclaimer").newThread(NativeResourceReclaimer::processQueue).start();
+        }
+        final String className = holder.getClass().getName();
+        final Reclaimable reference = new Reclaimable(holder, className, NativeResourceLeakDetector.track(className), NativeResourceLeakDetector.captureAllocationSite(className));
+        NativeResourceReclaimer.liveReferences.add(reference);
+        return reference;
+    }
+    
+    private static void processQueue() {
+        while (true) {
+            try {
+                ((Reclaimable)NativeResourceReclaimer.queue.remove()).reclaim();
+            }
+            catch (InterruptedException e) {
+                NativeResourceReclaimer.log.debug("Native resource reclaimer thread interrupted, continuing.");
+            }
+            catch (Throwable e2) {
+                NativeResourceReclaimer.log.error("Reclaiming native resources threw an exception.", e2);
+            }
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)NativeResourceReclaimer.class);
+        queue = new ReferenceQueue<Object>();
+        liveReferences = ConcurrentHashMap.newKeySet();
+        threadStarted = new AtomicBoolean();
+    }
+    
+    static final class Reclaimable extends PhantomReference<Object>
+    {
+        private final AtomicBoolean released;
+        private final String className;
+        private final NativeResourceLeakDetector.ResourceStatistics statistics;
+        private final Throwable allocationSite;
+        private volatile Runnable reclaimAction;
+        private long nativeBytes;
+        private List<DirectBufferArena> bufferArenas;
+        private List<ByteBuffer> buffers;
+        
+        private Reclaimable(final Object holder, final String className, final NativeResourceLeakDetector.ResourceStatistics statistics, final Throwable allocationSite) {
+            super(holder, NativeResourceReclaimer.queue);
+            this.released = new AtomicBoolean();
+            this.className = className;
+            this.statistics = statistics;
+            this.allocationSite = allocationSite;
+        }
+        
+        boolean isReleased() {
+            return this.released.get();
+        }
+        
+        void setReclaimAction(final Runnable reclaimAction) {
+            this.reclaimAction = reclaimAction;
+        }
+        
+        synchronized void addBuffer(final DirectBufferArena arena, final ByteBuffer buffer) {
+            if (this.buffers == null) {
+                this.bufferArenas = new ArrayList<DirectBufferArena>();
+                this.buffers = new ArrayList<ByteBuffer>();
+            }
+            this.bufferArenas.add(arena);
+            this.buffers.add(buffer);
+            this.addNativeBytes(buffer.capacity());
+        }
+        
+        synchronized void addNativeBytes(final long bytes) {
+            this.nativeBytes += bytes;
+            if (this.statistics != null && !this.released.get()) {
+                this.statistics.addNativeBytes(bytes);
+            }
+        }
+        
+        synchronized void returnBuffers() {
+            if (this.buffers != null) {
+                for (int i = 0; i < this.buffers.size(); ++i) {
+                    this.bufferArenas.get(i).release(this.buffers.get(i));
+                }
+                this.bufferArenas = null;
+                this.buffers = null;
+            }
+        }
+        
+        boolean release() {
+            return this.release(false);
+        }
+        
+        private boolean release(final boolean leaked) {
+            if (this.released.compareAndSet(false, true)) {
+                NativeResourceReclaimer.liveReferences.remove(this);
+                if (this.statistics != null) {
+                    synchronized (this) {
+                        this.statistics.onReleased(this.nativeBytes, leaked);
+                        this.nativeBytes = 0L;
+                    }
+                }
+                this.reclaimAction = null;
+                this.clear();
+                return true;
+            }
+            return false;
+        }
+        
+        private void reclaim() {
+            final Runnable action = this.reclaimAction;
+            if (this.release(true)) {
+                if (action != null) {
+                    NativeResourceReclaimer.log.warn("Should have been closed before being reclaimed ({}).", (Object)this.className, (Object)this.allocationSite);
+                    action.run();
+                }
+                else {
+                    NativeResourceReclaimer.log.error("Should have been closed before being reclaimed ({}), native resources were leaked as no reclaim action was registered.", (Object)this.className, (Object)this.allocationSite);
+                }
+                this.returnBuffers();
+            }
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package me.justapie.lava.common.natives;
 
 import org.slf4j.LoggerFactory;
-import java.io.InputStream;
+import java.net.URL;
 import me.justapie.lava.common.natives.architecture.SystemType;
 import org.slf4j.Logger;
 
-public class ResourceNativeLibraryBinaryProvider implements NativeLibraryBinaryProvider
+public class ResourceNativeLibraryBinaryProvider extends AbstractNativeLibraryBinaryProvider
 {
     private static final Logger log;
     private final Class<?> classLoaderSample;
@@ -17,10 +17,18 @@ public class ResourceNativeLibraryBinaryProvider implements NativeLibraryBinaryP
     }
     
     @Override
-    public InputStream getLibraryStream(final SystemType systemType, final String libraryName) {
-        final String resourcePath = this.nativesRoot + systemType.formatSystemName() + "/" + systemType.formatLibraryName(libraryName);
-        ResourceNativeLibraryBinaryProvider.log.debug("Native library {}: trying to find from resources at {} with {} as classloader reference", new Object[] { libraryName, resourcePath, this.classLoaderSample.getName() });
-        return this.classLoaderSample.getResourceAsStream(resourcePath);
+    public NativeLibraryBinary getLibraryBinary(final SystemType systemType, final String libraryName) {
+        for (final String systemName : systemType.formatSystemNameCandidates()) {
+            final String resourcePath = this.nativesRoot + systemName + "/" + systemType.formatLibraryName(libraryName);
+            for (final NativeLibraryCompression compression : ResourceNativeLibraryBinaryProvider.COMPRESSION_PREFERENCE) {
+                ResourceNativeLibraryBinaryProvider.log.debug("Native library {}: trying to find from resources at {} with {} as classloader reference", new Object[] { libraryName, resourcePath + compression.getFileSuffix(), this.classLoaderSample.getName() });
+                final URL resource = this.classLoaderSample.getResource(resourcePath + compression.getFileSuffix());
+                if (resource != null) {
+                    return new NativeLibraryBinary(() -> AbstractNativeLibraryBinaryProvider.openResourceChannel(resource), compression, -1L, null);
+                }
+            }
+        }
+        return null;
     }
     
     static {
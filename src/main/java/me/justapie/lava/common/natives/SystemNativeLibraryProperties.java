@@ -25,6 +25,26 @@ public class SystemNativeLibraryProperties implements NativeLibraryProperties
         return this.get("extractPath");
     }
     
+    @Override
+    public String getExtractToMemory() {
+        return this.get("extractToMemory");
+    }
+    
+    @Override
+    public String getCleanupRetainCount() {
+        return this.get("cleanupRetainCount");
+    }
+    
+    @Override
+    public String getCleanupRetainAge() {
+        return this.get("cleanupRetainAge");
+    }
+    
+    @Override
+    public String getVerifyCachedCopies() {
+        return this.get("verifyCachedCopies");
+    }
+    
     @Override
     public String getSystemName() {
         return this.get("system");
@@ -35,6 +55,11 @@ public class SystemNativeLibraryProperties implements NativeLibraryProperties
         return this.get("arch");
     }
     
+    @Override
+    public String getCpuFeatureLevel() {
+        return this.get("cpuLevel");
+    }
+    
     @Override
     public String getLibraryFileNamePrefix() {
         return this.get("libPrefix");
@@ -46,6 +71,9 @@ public class SystemNativeLibraryProperties implements NativeLibraryProperties
     }
     
     private String get(final String property) {
+        if (this.libraryName == null) {
+            return System.getProperty(this.propertyPrefix + property);
+        }
         return System.getProperty(this.propertyPrefix + this.libraryName + "." + property, System.getProperty(this.propertyPrefix + property));
     }
 }
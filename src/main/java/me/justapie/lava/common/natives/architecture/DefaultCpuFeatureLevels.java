@@ -0,0 +1,149 @@
+package me.justapie.lava.common.natives.architecture;
+
+import org.slf4j.LoggerFactory;
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.Map;
+import java.util.List;
+import org.slf4j.Logger;
+
+public enum DefaultCpuFeatureLevels
+{
+    X86_64_V2(DefaultArchitectureTypes.X86_64, "v2", Arrays.asList("cx16", "lahf_lm", "popcnt", "sse4_1", "sse4_2", "ssse3")), 
+    X86_64_V3(DefaultArchitectureTypes.X86_64, "v3", Arrays.asList("avx", "avx2", "bmi1", "bmi2", "f16c", "fma", "abm", "movbe", "xsave")), 
+    X86_64_V4(DefaultArchitectureTypes.X86_64, "v4", Arrays.asList("avx512f", "avx512bw", "avx512cd", "avx512dq", "avx512vl")), 
+    ARM_NEON(DefaultArchitectureTypes.ARM, "neon", Arrays.asList("neon")), 
+    ARM_HF_NEON(DefaultArchitectureTypes.ARM_HF, "neon", Arrays.asList("neon")), 
+    ARMv8_64_SVE(DefaultArchitectureTypes.ARMv8_64, "sve", Arrays.asList("sve")), 
+    ARMv8_64_SVE2(DefaultArchitectureTypes.ARMv8_64, "sve2", Arrays.asList("sve2"));
+    
+    private static final Logger log;
+    public final ArchitectureType architectureType;
+    public final String identifier;
+    public final List<String> requiredFeatures;
+    private static Map<ArchitectureType, List<String>> detectedLevels;
+    
+    private DefaultCpuFeatureLevels(final ArchitectureType architectureType, final String identifier, final List<String> requiredFeatures) {
+        this.architectureType = architectureType;
+        this.identifier = identifier;
+        this.requiredFeatures = requiredFeatures;
+    }
+    
+    public static List<String> detect(final ArchitectureType architectureType) {
+        return DefaultCpuFeatureLevels.detectedLevels.computeIfAbsent(architectureType, type -> Collections.unmodifiableList(matchLevels(type, detectCpuFeatures(type))));
+    }
+    
+    public static List<String> fromExplicitLevel(final ArchitectureType architectureType, final String explicitLevel) {
+        if ("none".equals(explicitLevel)) {
+            return Collections.emptyList();
+        }
+        final List<String> levels = new ArrayList<String>();
+        for (final DefaultCpuFeatureLevels value : values()) {
+            if (value.architectureType.identifier().equals(architectureType.identifier())) {
+                levels.add(value.identifier);
+                if (value.identifier.equals(explicitLevel)) {
+                    return Collections.unmodifiableList(reversed(levels));
+                }
+            }
+        }
+        return Collections.singletonList(explicitLevel);
+    }
+    
+    private static List<String> matchLevels(final ArchitectureType architectureType, final Set<String> features) {
+        final List<String> levels = new ArrayList<String>();
+        for (final DefaultCpuFeatureLevels value : values()) {
+            if (value.architectureType == architectureType) {
+                if (!features.containsAll(value.requiredFeatures)) {
+                    break;
+                }
+                levels.add(value.identifier);
+            }
+        }
+        DefaultCpuFeatureLevels.log.debug("Detected CPU feature levels {} for architecture {}.", (Object)levels, (Object)architectureType.identifier());
+        return reversed(levels);
+    }
+    
+    private static List<String> reversed(final List<String> levels) {
+        Collections.reverse(levels);
+        return levels;
+    }
+    
+    private static Set<String> detectCpuFeatures(final ArchitectureType architectureType) {
+        final Set<String> features = new HashSet<String>();
+        if (DefaultOperatingSystemTypes.detect() != DefaultOperatingSystemTypes.LINUX) {
+            return features;
+        }
+        try {
+            for (final String line : Files.readAllLines(Paths.get("/proc/cpuinfo", new String[0]), StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("flags") || line.startsWith("Features")) {
+                    features.addAll(Arrays.asList(line.substring(line.indexOf(':') + 1).trim().split("\\s+")));
+                    break;
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            DefaultCpuFeatureLevels.log.debug("Could not read CPU features from /proc/cpuinfo.", (Throwable)e);
+        }
+        if (architectureType == DefaultArchitectureTypes.ARMv8_64 || architectureType == DefaultArchitectureTypes.ARM || architectureType == DefaultArchitectureTypes.ARM_HF) {
+            addHardwareCapabilities(architectureType, features);
+        }
+        return features;
+    }
+    
+    private static void addHardwareCapabilities(final ArchitectureType architectureType, final Set<String> features) {
+        final long[] capabilities = readHardwareCapabilities(Paths.get("/proc/self/auxv", new String[0]));
+        if (architectureType == DefaultArchitectureTypes.ARMv8_64) {
+            if ((capabilities[0] & 0x400000L) != 0x0L) {
+                features.add("sve");
+            }
+            if ((capabilities[1] & 0x2L) != 0x0L) {
+                features.add("sve2");
+            }
+        }
+        else if ((capabilities[0] & 0x1000L) != 0x0L) {
+            features.add("neon");
+        }
+    }
+    
+    private static long[] readHardwareCapabilities(final Path auxiliaryVectorPath) {
+        final long[] capabilities = new long[2];
+        try {
+            final boolean is64Bit = !"32".equals(System.getProperty("sun.arch.data.model"));
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(auxiliaryVectorPath)).order(ByteOrder.nativeOrder());
+            final int entrySize = is64Bit ? 16 : 8;
+            while (buffer.remaining() >= entrySize) {
+                final long type = is64Bit ? buffer.getLong() : ((long)buffer.getInt() & 0xFFFFFFFFL);
+                final long value = is64Bit ? buffer.getLong() : ((long)buffer.getInt() & 0xFFFFFFFFL);
+                if (type == 16L) {
+                    capabilities[0] = value;
+                }
+                else if (type == 26L) {
+                    capabilities[1] = value;
+                }
+                else if (type == 0L) {
+                    break;
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            DefaultCpuFeatureLevels.log.debug("Could not read hardware capabilities from {}.", (Object)auxiliaryVectorPath, (Object)e);
+        }
+        return capabilities;
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)DefaultCpuFeatureLevels.class);
+        DefaultCpuFeatureLevels.detectedLevels = new ConcurrentHashMap<ArchitectureType, List<String>>();
+    }
+}
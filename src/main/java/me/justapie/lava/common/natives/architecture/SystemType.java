@@ -1,16 +1,25 @@
 package me.justapie.lava.common.natives.architecture;
 
 import java.util.Optional;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 import me.justapie.lava.common.natives.NativeLibraryProperties;
 
 public class SystemType
 {
     public final ArchitectureType architectureType;
     public final OperatingSystemType osType;
+    public final List<String> featureLevels;
     
     public SystemType(final ArchitectureType architectureType, final OperatingSystemType osType) {
+        this(architectureType, osType, Collections.emptyList());
+    }
+    
+    public SystemType(final ArchitectureType architectureType, final OperatingSystemType osType, final List<String> featureLevels) {
         this.architectureType = architectureType;
         this.osType = osType;
+        this.featureLevels = featureLevels;
     }
     
     public String formatSystemName() {
@@ -23,19 +32,41 @@ public class SystemType
         return this.osType.identifier() + "-" + this.architectureType.identifier();
     }
     
+    public List<String> formatSystemNameCandidates() {
+        final String systemName = this.formatSystemName();
+        final List<String> candidates = new ArrayList<String>(this.featureLevels.size() + 1);
+        for (final String featureLevel : this.featureLevels) {
+            candidates.add(systemName + "-" + featureLevel);
+        }
+        candidates.add(systemName);
+        return candidates;
+    }
+    
     public String formatLibraryName(final String libraryName) {
         return this.osType.libraryFilePrefix() + libraryName + this.osType.libraryFileSuffix();
     }
     
     public static SystemType detect(final NativeLibraryProperties properties) {
         final String systemName = properties.getSystemName();
+        final String explicitFeatureLevel = properties.getCpuFeatureLevel();
         if (systemName != null) {
-            return new SystemType(() -> systemName, new UnknownOperatingSystem((String)Optional.ofNullable(properties.getLibraryFileNamePrefix()).orElse("lib"), (String)Optional.ofNullable(properties.getLibraryFileNameSuffix()).orElse(".so")));
+            final ArchitectureType architectureType = () -> systemName;
+            return new SystemType(architectureType, new UnknownOperatingSystem((String)Optional.ofNullable(properties.getLibraryFileNamePrefix()).orElse("lib"), (String)Optional.ofNullable(properties.getLibraryFileNameSuffix()).orElse(".so")), (explicitFeatureLevel != null) ? DefaultCpuFeatureLevels.fromExplicitLevel(architectureType, explicitFeatureLevel) : Collections.emptyList());
         }
         final OperatingSystemType osType = DefaultOperatingSystemTypes.detect();
         final String explicitArchitecture = properties.getArchitectureName();
-        final ArchitectureType architectureType = (explicitArchitecture != null) ? (() -> explicitArchitecture) : DefaultArchitectureTypes.detect();
-        return new SystemType(architectureType, osType);
+        final ArchitectureType architectureType2 = (explicitArchitecture != null) ? (() -> explicitArchitecture) : DefaultArchitectureTypes.detect();
+        List<String> featureLevels;
+        if (explicitFeatureLevel != null) {
+            featureLevels = DefaultCpuFeatureLevels.fromExplicitLevel(architectureType2, explicitFeatureLevel);
+        }
+        else if (explicitArchitecture == null) {
+            featureLevels = DefaultCpuFeatureLevels.detect(architectureType2);
+        }
+        else {
+            featureLevels = Collections.emptyList();
+        }
+        return new SystemType(architectureType2, osType, featureLevels);
     }
     
     private static class UnknownOperatingSystem implements OperatingSystemType
@@ -0,0 +1,262 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.slf4j.Logger;
+
+public class AdaptiveExecutorController
+{
+    private static final Logger log;
+    private static final int DECISION_HISTORY = 64;
+    private static final double LOW_WATERMARK = 0.5;
+    private static final double CPU_CEILING = 0.9;
+    private static final int SHRINK_AFTER = 3;
+    private static final OperatingSystemMXBean operatingSystemBean;
+    private static final boolean cpuLoadSupported;
+    private final String name;
+    private final InstrumentedThreadPoolExecutor executor;
+    private final int minimumSize;
+    private final int maximumSize;
+    private final long targetQueueWaitNanos;
+    private final Deque<Decision> decisions;
+    private ExecutorMetrics.Snapshot previous;
+    private long previousTime;
+    private int quietIntervals;
+    private boolean cooldown;
+    private ScheduledExecutorService scheduler;
+    
+    public AdaptiveExecutorController(final String name, final InstrumentedThreadPoolExecutor executor, final int minimumSize, final int maximumSize, final long targetQueueWait, final TimeUnit unit) {
+        if (minimumSize < 1 || maximumSize < minimumSize) {
+            throw new IllegalArgumentException("Size bounds must satisfy 1 <= minimum <= maximum.");
+        }
+        this.name = name;
+        this.executor = executor;
+        this.minimumSize = minimumSize;
+        this.maximumSize = maximumSize;
+        this.targetQueueWaitNanos = unit.toNanos(targetQueueWait);
+        this.decisions = new ArrayDeque<Decision>();
+        this.previous = executor.getMetrics().snapshot();
+        this.previousTime = System.nanoTime();
+    }
+    
+    public synchronized void start(final long interval, final TimeUnit unit) {
+        if (this.scheduler != null) {
+            throw new IllegalStateException("Controller is already running.");
+        }
+        final int size = Math.max(this.minimumSize, Math.min(this.maximumSize, this.executor.getMaximumPoolSize()));
+        this.resize(Math.min(size, this.executor.getCorePoolSize()), size);
+        (this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("adaptive-" + this.name))).scheduleWithFixedDelay(this::scheduledAdjust, interval, interval, unit);
+    }
+    
+    public synchronized void stop() {
+        ExecutorTools.shutdownExecutor(this.scheduler, "adaptive controller " + this.name);
+        this.scheduler = null;
+    }
+    
+    public synchronized Decision adjust() {
+        final long now = System.nanoTime();
+        final ExecutorMetrics.Snapshot current = this.executor.getMetrics().snapshot();
+        final LatencyHistogram.Snapshot queueWait = current.getQueueWait().since(this.previous.getQueueWait());
+        final LatencyHistogram.Snapshot runTime = current.getRunTime().since(this.previous.getRunTime());
+        final double seconds = Math.max(1.0E-9, (now - this.previousTime) / 1.0E9);
+        final double throughput = (current.getCompleted() + current.getFailed() - this.previous.getCompleted() - this.previous.getFailed()) / seconds;
+        this.previous = current;
+        this.previousTime = now;
+        final long waitP90 = queueWait.getValueAtPercentile(90.0);
+        final double cpuLoad = getCpuLoad();
+        final int currentSize = this.executor.getMaximumPoolSize();
+        int newSize = currentSize;
+        Action action = Action.HOLD;
+        String reason;
+        if (this.cooldown) {
+            this.cooldown = false;
+            reason = "cooldown after previous change";
+        }
+        else if (waitP90 > this.targetQueueWaitNanos && queueWait.getCount() > 0L) {
+            this.quietIntervals = 0;
+            if (cpuLoad >= 0.9) {
+                reason = "queue wait above target but CPU saturated";
+            }
+            else if (currentSize >= this.maximumSize) {
+                reason = "queue wait above target but at maximum size";
+            }
+            else {
+                newSize = Math.min(this.maximumSize, currentSize + Math.max(1, currentSize / 4));
+                action = Action.GROW;
+                reason = "queue wait above target";
+            }
+        }
+        else if (waitP90 < this.targetQueueWaitNanos * 0.5) {
+            if (++this.quietIntervals >= 3 && currentSize > this.minimumSize) {
+                newSize = Math.max(this.minimumSize, currentSize - Math.max(1, currentSize / 8));
+                action = Action.SHRINK;
+                reason = "queue wait below low watermark for " + this.quietIntervals + " intervals";
+                this.quietIntervals = 0;
+            }
+            else {
+                reason = "queue wait below low watermark";
+            }
+        }
+        else {
+            this.quietIntervals = 0;
+            reason = "queue wait within hysteresis band";
+        }
+        int newCore = this.executor.getCorePoolSize();
+        if (action != Action.HOLD) {
+            final int busyThreads = (int)Math.ceil(throughput * runTime.getMean() / 1.0E9);
+            newCore = Math.min(newSize, Math.max(Math.min(this.minimumSize, newCore), busyThreads));
+            this.resize(newCore, newSize);
+            this.cooldown = true;
+        }
+        final Decision decision = new Decision(System.currentTimeMillis(), action, currentSize, newSize, newCore, waitP90, throughput, cpuLoad, reason);
+        this.record(decision);
+        return decision;
+    }
+    
+    private void scheduledAdjust() {
+        try {
+            this.adjust();
+        }
+        catch (Throwable e) {
+            AdaptiveExecutorController.log.error("Executor {}: adaptive sizing failed.", (Object)this.name, (Object)e);
+        }
+    }
+    
+    public synchronized List<Decision> getDecisions() {
+        return new ArrayList<Decision>(this.decisions);
+    }
+    
+    private void resize(final int coreSize, final int maximumSize) {
+        if (maximumSize >= this.executor.getMaximumPoolSize()) {
+            this.executor.setMaximumPoolSize(maximumSize);
+            this.executor.setCorePoolSize(coreSize);
+        }
+        else {
+            this.executor.setCorePoolSize(coreSize);
+            this.executor.setMaximumPoolSize(maximumSize);
+        }
+    }
+    
+    private void record(final Decision decision) {
+        if (this.decisions.size() >= 64) {
+            this.decisions.removeFirst();
+        }
+        this.decisions.addLast(decision);
+        if (decision.action != Action.HOLD) {
+            AdaptiveExecutorController.log.debug("Executor {}: {}", (Object)this.name, (Object)decision);
+        }
+    }
+    
+    private static double getCpuLoad() {
+        if (AdaptiveExecutorController.cpuLoadSupported) {
+            final com.sun.management.OperatingSystemMXBean extendedBean = (com.sun.management.OperatingSystemMXBean)AdaptiveExecutorController.operatingSystemBean;
+            final double systemLoad = extendedBean.getSystemCpuLoad();
+            if (systemLoad >= 0.0) {
+                return systemLoad;
+            }
+            final double processLoad = extendedBean.getProcessCpuLoad();
+            if (processLoad >= 0.0) {
+                return processLoad;
+            }
+        }
+        final double loadAverage = AdaptiveExecutorController.operatingSystemBean.getSystemLoadAverage();
+        return (loadAverage < 0.0) ? 0.0 : (loadAverage / Runtime.getRuntime().availableProcessors());
+    }
+    
+    private static boolean detectCpuLoadSupport() {
+        try {
+            return AdaptiveExecutorController.operatingSystemBean instanceof com.sun.management.OperatingSystemMXBean;
+        }
+        catch (Throwable e) {
+            AdaptiveExecutorController.log.debug("CPU load is not available, falling back to the system load average.", e);
+            return false;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)AdaptiveExecutorController.class);
+        operatingSystemBean = ManagementFactory.getOperatingSystemMXBean();
+        cpuLoadSupported = detectCpuLoadSupport();
+    }
+    
+    public enum Action
+    {
+        GROW, 
+        SHRINK, 
+        HOLD;
+    }
+    
+    public static class Decision
+    {
+        private final long timestamp;
+        private final Action action;
+        private final int previousSize;
+        private final int newSize;
+        private final int newCoreSize;
+        private final long queueWaitP90Nanos;
+        private final double throughput;
+        private final double cpuLoad;
+        private final String reason;
+        
+        private Decision(final long timestamp, final Action action, final int previousSize, final int newSize, final int newCoreSize, final long queueWaitP90Nanos, final double throughput, final double cpuLoad, final String reason) {
+            this.timestamp = timestamp;
+            this.action = action;
+            this.previousSize = previousSize;
+            this.newSize = newSize;
+            this.newCoreSize = newCoreSize;
+            this.queueWaitP90Nanos = queueWaitP90Nanos;
+            this.throughput = throughput;
+            this.cpuLoad = cpuLoad;
+            this.reason = reason;
+        }
+        
+        public long getTimestamp() {
+            return this.timestamp;
+        }
+        
+        public Action getAction() {
+            return this.action;
+        }
+        
+        public int getPreviousSize() {
+            return this.previousSize;
+        }
+        
+        public int getNewSize() {
+            return this.newSize;
+        }
+        
+        public int getNewCoreSize() {
+            return this.newCoreSize;
+        }
+        
+        public long getQueueWaitP90Nanos() {
+            return this.queueWaitP90Nanos;
+        }
+        
+        public double getThroughput() {
+            return this.throughput;
+        }
+        
+        public double getCpuLoad() {
+            return this.cpuLoad;
+        }
+        
+        public String getReason() {
+            return this.reason;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("{action=%s, size=%d->%d, core=%d, queueWaitP90=%dus, throughput=%.1f/s, cpu=%.2f, reason=%s}", this.action, this.previousSize, this.newSize, this.newCoreSize, this.queueWaitP90Nanos / 1000L, this.throughput, this.cpuLoad, this.reason);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.List;
+import org.slf4j.Logger;
+
+public class BatchingExecutor extends AbstractExecutorService
+{
+    private static final Logger log;
+    private final String name;
+    private final BatchingStage<Runnable> stage;
+    
+    public BatchingExecutor(final String name, final Executor executor, final int batchSize, final int capacity, final long maxDelay, final TimeUnit unit, final HashedWheelTimer timer) {
+        this.name = name;
+        this.stage = new BatchingStage<Runnable>(name, executor, BatchingExecutor::runBatch, batchSize, capacity, maxDelay, unit, timer);
+    }
+    
+    @Override
+    public void execute(final Runnable command) {
+        if (this.stage.offer(command)) {
+            return;
+        }
+        try {
+            if (this.stage.offer(command, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for space in batching executor " + this.name);
+        }
+        throw new RejectedExecutionException("Batching executor " + this.name + " has been shut down.");
+    }
+    
+    @Override
+    public void shutdown() {
+        this.stage.close();
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        this.stage.close();
+        return this.stage.drainPending();
+    }
+    
+    @Override
+    public boolean isShutdown() {
+        return this.stage.isClosed();
+    }
+    
+    @Override
+    public boolean isTerminated() {
+        return this.stage.isClosed() && this.stage.isIdle();
+    }
+    
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.stage.awaitTermination(timeout, unit);
+    }
+    
+    private static void runBatch(final BatchingStage.Batch<Runnable> batch) {
+        for (int i = 0; i < batch.size(); ++i) {
+            try {
+                batch.get(i).run();
+            }
+            catch (Throwable e) {
+                BatchingExecutor.log.error("Batched task threw an exception.", e);
+            }
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)BatchingExecutor.class);
+    }
+}
@@ -0,0 +1,397 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+
+public class BatchingStage<T>
+{
+    private static final Logger log;
+    private final String name;
+    private final Executor executor;
+    private final Consumer<Batch<T>> consumer;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final HashedWheelTimer timer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> ring;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private volatile long head;
+    private final Batch<T> batch;
+    private final AtomicInteger drainState;
+    private final AtomicBoolean timerArmed;
+    private final AtomicInteger putWaiters;
+    private final AtomicInteger idleWaiters;
+    private final ReentrantLock waitLock;
+    private final Condition notFull;
+    private final Condition idle;
+    private final Runnable drainTask;
+    private final Runnable delayTask;
+    private volatile boolean flushRequested;
+    private volatile boolean closed;
+    
+    public BatchingStage(final String name, final Executor executor, final Consumer<Batch<T>> consumer, final int batchSize, final int capacity, final long maxDelay, final TimeUnit unit, final HashedWheelTimer timer) {
+        if (batchSize < 1 || capacity < batchSize || capacity > 1073741824) {
+            throw new IllegalArgumentException("Batch size must be positive and not above capacity.");
+        }
+        this.name = name;
+        this.executor = executor;
+        this.consumer = consumer;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.timer = timer;
+        this.capacity = ((capacity == 1) ? 1 : (Integer.highestOneBit(capacity - 1) << 1));
+        this.mask = this.capacity - 1;
+        this.ring = new AtomicReferenceArray<T>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; ++i) {
+            this.sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.batch = new Batch<T>(this.ring, this.mask);
+        this.drainState = new AtomicInteger();
+        this.timerArmed = new AtomicBoolean();
+        this.putWaiters = new AtomicInteger();
+        this.idleWaiters = new AtomicInteger();
+        this.waitLock = new ReentrantLock();
+        this.notFull = this.waitLock.newCondition();
+        this.idle = this.waitLock.newCondition();
+        this.drainTask = () -> {
+            if (this.drainState.compareAndSet(1, 2) && this.drain()) {
+                this.scheduleDrain();
+            }
+        };
+        this.delayTask = this::onDelayExpired;
+    }
+    
+    public boolean offer(final T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        if (this.closed || !this.enqueue(item)) {
+            return false;
+        }
+        if (this.size() >= this.batchSize) {
+            this.scheduleDrain();
+        }
+        else {
+            this.armTimer();
+        }
+        return true;
+    }
+    
+    public boolean offer(final T item, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (this.offer(item)) {
+            return true;
+        }
+        long remaining = unit.toNanos(timeout);
+        this.waitLock.lockInterruptibly();
+        this.putWaiters.incrementAndGet();
+        try {
+            while (!this.closed) {
+                if (this.offer(item)) {
+                    return true;
+                }
+                if (remaining <= 0L) {
+                    return false;
+                }
+                remaining = this.notFull.awaitNanos(remaining);
+            }
+            return false;
+        }
+        finally {
+            this.putWaiters.decrementAndGet();
+            this.waitLock.unlock();
+        }
+    }
+    
+    public void put(final T item) throws InterruptedException {
+        if (!this.offer(item, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            throw new IllegalStateException("Batching stage " + this.name + " is closed.");
+        }
+    }
+    
+    public int size() {
+        return (int)Math.max(0L, Math.min(this.capacity, this.tail.get() - this.head));
+    }
+    
+    public void flush() {
+        this.flushRequested = true;
+        this.scheduleDrain();
+    }
+    
+    public void close() {
+        this.closed = true;
+        this.flush();
+        this.signalNotFull();
+        this.signalIdle();
+    }
+    
+    public boolean isClosed() {
+        return this.closed;
+    }
+    
+    public boolean isIdle() {
+        return this.size() == 0 && this.drainState.get() == 0;
+    }
+    
+    public boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.awaitIdle(false, unit.toNanos(timeout));
+    }
+    
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.awaitIdle(true, unit.toNanos(timeout));
+    }
+    
+    private boolean awaitIdle(final boolean requireClosed, final long timeoutNanos) throws InterruptedException {
+        if (this.isIdle() && (this.closed || !requireClosed)) {
+            return true;
+        }
+        long remaining = timeoutNanos;
+        this.waitLock.lockInterruptibly();
+        this.idleWaiters.incrementAndGet();
+        try {
+            while (!this.isIdle() || (requireClosed && !this.closed)) {
+                if (remaining <= 0L) {
+                    return false;
+                }
+                remaining = this.idle.awaitNanos(remaining);
+            }
+            return true;
+        }
+        finally {
+            this.idleWaiters.decrementAndGet();
+            this.waitLock.unlock();
+        }
+    }
+    
+    public List<T> drainPending() {
+        this.acquireDrain();
+        final List<T> pending = new ArrayList<T>();
+        try {
+            int available;
+            while ((available = this.countPublished(this.capacity)) > 0) {
+                for (int i = 0; i < available; ++i) {
+                    pending.add(this.ring.get((int)(this.head + i & (long)this.mask)));
+                }
+                this.release(available);
+            }
+        }
+        finally {
+            this.drainState.set(0);
+            this.signalIdle();
+        }
+        return pending;
+    }
+    
+    private void acquireDrain() {
+        while (!this.drainState.compareAndSet(0, 2) && !this.drainState.compareAndSet(1, 2)) {
+            this.waitLock.lock();
+            this.idleWaiters.incrementAndGet();
+            try {
+                while (this.drainState.get() == 2) {
+                    this.idle.awaitUninterruptibly();
+                }
+            }
+            finally {
+                this.idleWaiters.decrementAndGet();
+                this.waitLock.unlock();
+            }
+        }
+    }
+    
+    private boolean enqueue(final T item) {
+        long position = this.tail.get();
+        int index;
+        while (true) {
+            index = (int)(position & (long)this.mask);
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0L) {
+                if (this.tail.compareAndSet(position, position + 1L)) {
+                    break;
+                }
+                position = this.tail.get();
+            }
+            else {
+                if (difference < 0L) {
+                    return false;
+                }
+                position = this.tail.get();
+            }
+        }
+        this.ring.lazySet(index, item);
+        this.sequences.set(index, position + 1L);
+        return true;
+    }
+    
+    private int countPublished(final int limit) {
+        final long start = this.head;
+        int count;
+        for (count = 0; count < limit; ++count) {
+            final long position = start + count;
+            if (this.sequences.get((int)(position & (long)this.mask)) != position + 1L) {
+                break;
+            }
+        }
+        return count;
+    }
+    
+    private void release(final int count) {
+        final long start = this.head;
+        for (int i = 0; i < count; ++i) {
+            final long position = start + i;
+            final int index = (int)(position & (long)this.mask);
+            this.ring.lazySet(index, null);
+            this.sequences.set(index, position + this.capacity);
+        }
+        this.head = start + count;
+        this.signalNotFull();
+    }
+    
+    private boolean drain() {
+        final boolean flushed = this.flushRequested;
+        if (flushed) {
+            this.flushRequested = false;
+        }
+        try {
+            while (true) {
+                final boolean flush = flushed || this.closed;
+                final int available = this.countPublished(this.batchSize);
+                if (available == 0 || (available < this.batchSize && !flush)) {
+                    break;
+                }
+                this.batch.reset(this.head, available);
+                try {
+                    this.consumer.accept(this.batch);
+                }
+                catch (Throwable e) {
+                    BatchingStage.log.error("Batch consumer of stage {} threw an exception.", (Object)this.name, (Object)e);
+                }
+                this.batch.reset(0L, 0);
+                this.release(available);
+            }
+        }
+        finally {
+            this.drainState.set(0);
+            this.signalIdle();
+        }
+        final int pending = this.size();
+        if (pending >= this.batchSize || (pending > 0 && (this.flushRequested || this.closed))) {
+            return true;
+        }
+        if (pending > 0) {
+            this.armTimer();
+        }
+        return false;
+    }
+    
+    private void scheduleDrain() {
+        while (this.drainState.compareAndSet(0, 1)) {
+            try {
+                this.executor.execute(this.drainTask);
+                return;
+            }
+            catch (RejectedExecutionException e) {
+                if (!this.drainState.compareAndSet(1, 2) || !this.drain()) {
+                    return;
+                }
+                continue;
+            }
+        }
+    }
+    
+    private void armTimer() {
+        if (this.timerArmed.get() || !this.timerArmed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.timer.schedule(this.delayTask, this.maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            this.timerArmed.set(false);
+            this.flush();
+        }
+    }
+    
+    private void onDelayExpired() {
+        this.timerArmed.set(false);
+        this.flush();
+    }
+    
+    private void signalNotFull() {
+        if (this.putWaiters.get() > 0) {
+            this.waitLock.lock();
+            try {
+                this.notFull.signalAll();
+            }
+            finally {
+                this.waitLock.unlock();
+            }
+        }
+    }
+    
+    private void signalIdle() {
+        if (this.idleWaiters.get() > 0) {
+            this.waitLock.lock();
+            try {
+                this.idle.signalAll();
+            }
+            finally {
+                this.waitLock.unlock();
+            }
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)BatchingStage.class);
+    }
+    
+    public static class Batch<T>
+    {
+        private final AtomicReferenceArray<T> ring;
+        private final int mask;
+        private long start;
+        private int size;
+        
+        private Batch(final AtomicReferenceArray<T> ring, final int mask) {
+            this.ring = ring;
+            this.mask = mask;
+        }
+        
+        private void reset(final long start, final int size) {
+            this.start = start;
+            this.size = size;
+        }
+        
+        public int size() {
+            return this.size;
+        }
+        
+        public T get(final int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index " + index + " outside batch of " + this.size);
+            }
+            return this.ring.get((int)(this.start + index & (long)this.mask));
+        }
+        
+        public void forEach(final Consumer<? super T> action) {
+            for (int i = 0; i < this.size; ++i) {
+                action.accept(this.ring.get((int)(this.start + i & (long)this.mask)));
+            }
+        }
+    }
+}
@@ -11,29 +11,79 @@ public class DaemonThreadFactory implements ThreadFactory
     private static final AtomicInteger poolNumber;
     private final ThreadGroup group;
     private final AtomicInteger threadNumber;
+    private final String name;
     private final String namePrefix;
     private final Runnable exitCallback;
+    private final boolean virtual;
+    private final ThreadAffinityPolicy affinityPolicy;
+    private final ThreadPoolAccounting accounting;
     
     public DaemonThreadFactory(final String name) {
         this(name, null);
     }
     
     public DaemonThreadFactory(final String name, final Runnable exitCallback) {
+        this(new Builder(name).exitCallback(exitCallback));
+    }
+    
+    private DaemonThreadFactory(final Builder builder) {
         this.threadNumber = new AtomicInteger(1);
+        this.name = builder.name;
         final SecurityManager securityManager = System.getSecurityManager();
         this.group = ((securityManager != null) ? securityManager.getThreadGroup() : Thread.currentThread().getThreadGroup());
-        this.namePrefix = "lava-daemon-pool-" + name + "-" + DaemonThreadFactory.poolNumber.getAndIncrement() + "-thread-";
-        this.exitCallback = exitCallback;
+        this.namePrefix = "lava-daemon-pool-" + builder.name + "-" + DaemonThreadFactory.poolNumber.getAndIncrement() + "-thread-";
+        this.accounting = (builder.accounting ? ThreadPoolAccounting.forPool(builder.name) : null);
+        this.exitCallback = ((this.accounting != null) ? this.accounting.wrapExitCallback(builder.exitCallback) : builder.exitCallback);
+        this.virtual = (builder.virtual && VirtualThreads.isSupported());
+        if (builder.virtual && !this.virtual) {
+            DaemonThreadFactory.log.debug("Virtual threads are not supported by this JVM, pool {} uses platform threads.", (Object)builder.name);
+        }
+        this.affinityPolicy = (this.virtual ? null : builder.affinityPolicy);
+    }
+    
+    public static Builder builder(final String name) {
+        return new Builder(name);
+    }
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+    
+    public ThreadPoolAccounting getAccounting() {
+        return this.accounting;
     }
     
     @Override
     public Thread newThread(final Runnable runnable) {
-        final Thread thread = new Thread(this.group, this.getThreadRunnable(runnable), this.namePrefix + this.threadNumber.getAndIncrement(), 0L);
+        if (this.virtual) {
+            return VirtualThreads.newThread(this.namePrefix + this.threadNumber.getAndIncrement(), this.getThreadRunnable(runnable));
+        }
+        final int index = this.threadNumber.getAndIncrement();
+        final Thread thread = new Thread(this.group, this.getThreadRunnable(this.getAffinityRunnable(runnable, index - 1)), this.namePrefix + index, 0L);
         thread.setDaemon(true);
         thread.setPriority(5);
         return thread;
     }
     
+    private Runnable getAffinityRunnable(final Runnable target, final int index) {
+        if (this.affinityPolicy == null) {
+            return target;
+        }
+        final ThreadAffinityPolicy policy = this.affinityPolicy;
+        return () -> {
+            if (!policy.apply(index)) {
+                DaemonThreadFactory.log.debug("Could not apply affinity {} to thread {}.", (Object)policy, (Object)Thread.currentThread().getName());
+            }
+            if (target != null) {
+                target.run();
+            }
+        };
+    }
+    
     private Runnable getThreadRunnable(final Runnable target) {
         if (this.exitCallback == null) {
             return target;
@@ -46,6 +96,43 @@ public class DaemonThreadFactory implements ThreadFactory
         poolNumber = new AtomicInteger(1);
     }
     
+    public static class Builder
+    {
+        private final String name;
+        private Runnable exitCallback;
+        private boolean virtual;
+        private ThreadAffinityPolicy affinityPolicy;
+        private boolean accounting;
+        
+        private Builder(final String name) {
+            this.name = name;
+        }
+        
+        public Builder exitCallback(final Runnable exitCallback) {
+            this.exitCallback = exitCallback;
+            return this;
+        }
+        
+        public Builder virtual(final boolean virtual) {
+            this.virtual = virtual;
+            return this;
+        }
+        
+        public Builder affinity(final ThreadAffinityPolicy affinityPolicy) {
+            this.affinityPolicy = affinityPolicy;
+            return this;
+        }
+        
+        public Builder accounting(final boolean accounting) {
+            this.accounting = accounting;
+            return this;
+        }
+        
+        public DaemonThreadFactory build() {
+            return new DaemonThreadFactory(this);
+        }
+    }
+    
     private class ExitCallbackRunnable implements Runnable
     {
         private final Runnable original;
@@ -57,6 +144,9 @@ public class DaemonThreadFactory implements ThreadFactory
         @Override
         public void run() {
             try {
+                if (DaemonThreadFactory.this.accounting != null) {
+                    DaemonThreadFactory.this.accounting.onThreadStarted();
+                }
                 if (this.original != null) {
                     this.original.run();
                 }
@@ -0,0 +1,124 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ExecutorMetrics
+{
+    private final LatencyHistogram queueWait;
+    private final LatencyHistogram runTime;
+    private final AtomicLong submitted;
+    private final AtomicLong rejected;
+    private final AtomicLong completed;
+    private final AtomicLong failed;
+    private final AtomicLong threadsCreated;
+    private final AtomicLong threadsExited;
+    
+    public ExecutorMetrics() {
+        this.queueWait = new LatencyHistogram();
+        this.runTime = new LatencyHistogram();
+        this.submitted = new AtomicLong();
+        this.rejected = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.threadsCreated = new AtomicLong();
+        this.threadsExited = new AtomicLong();
+    }
+    
+    void onSubmitted() {
+        this.submitted.incrementAndGet();
+    }
+    
+    void onRejected() {
+        this.rejected.incrementAndGet();
+    }
+    
+    void onStarted(final long queueWaitNanos) {
+        this.queueWait.record(queueWaitNanos);
+    }
+    
+    void onFinished(final long runNanos, final boolean success) {
+        this.runTime.record(runNanos);
+        (success ? this.completed : this.failed).incrementAndGet();
+    }
+    
+    void onThreadCreated() {
+        this.threadsCreated.incrementAndGet();
+    }
+    
+    void onThreadExited() {
+        this.threadsExited.incrementAndGet();
+    }
+    
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+    
+    @Override
+    public String toString() {
+        return this.snapshot().toString();
+    }
+    
+    public static class Snapshot
+    {
+        private final long submitted;
+        private final long rejected;
+        private final long completed;
+        private final long failed;
+        private final long threadsCreated;
+        private final long threadsExited;
+        private final LatencyHistogram.Snapshot queueWait;
+        private final LatencyHistogram.Snapshot runTime;
+        
+        private Snapshot(final ExecutorMetrics metrics) {
+            this.submitted = metrics.submitted.get();
+            this.rejected = metrics.rejected.get();
+            this.completed = metrics.completed.get();
+            this.failed = metrics.failed.get();
+            this.threadsCreated = metrics.threadsCreated.get();
+            this.threadsExited = metrics.threadsExited.get();
+            this.queueWait = metrics.queueWait.snapshot();
+            this.runTime = metrics.runTime.snapshot();
+        }
+        
+        public long getSubmitted() {
+            return this.submitted;
+        }
+        
+        public long getRejected() {
+            return this.rejected;
+        }
+        
+        public long getCompleted() {
+            return this.completed;
+        }
+        
+        public long getFailed() {
+            return this.failed;
+        }
+        
+        public long getThreadsCreated() {
+            return this.threadsCreated;
+        }
+        
+        public long getThreadsExited() {
+            return this.threadsExited;
+        }
+        
+        public long getLiveThreads() {
+            return this.threadsCreated - this.threadsExited;
+        }
+        
+        public LatencyHistogram.Snapshot getQueueWait() {
+            return this.queueWait;
+        }
+        
+        public LatencyHistogram.Snapshot getRunTime() {
+            return this.runTime;
+        }
+        
+        @Override
+        public String toString() {
+            return "{submitted=" + this.submitted + ", rejected=" + this.rejected + ", completed=" + this.completed + ", failed=" + this.failed + ", threadsCreated=" + this.threadsCreated + ", threadsExited=" + this.threadsExited + ", queueWaitNanos=" + this.queueWait + ", runTimeNanos=" + this.runTime + "}";
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.justapie.lava.common.tools;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ExecutorShutdownReport
+{
+    private final List<String> missedDeadline;
+    private final Map<String, Integer> droppedTasks;
+    private final long elapsedNanos;
+    
+    public ExecutorShutdownReport(final List<String> missedDeadline, final Map<String, Integer> droppedTasks, final long elapsedNanos) {
+        this.missedDeadline = Collections.unmodifiableList((List<? extends String>)missedDeadline);
+        this.droppedTasks = Collections.unmodifiableMap((Map<? extends String, ? extends Integer>)droppedTasks);
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public List<String> getMissedDeadline() {
+        return this.missedDeadline;
+    }
+    
+    public Map<String, Integer> getDroppedTasks() {
+        return this.droppedTasks;
+    }
+    
+    public int getTotalDroppedTasks() {
+        int total = 0;
+        for (final int dropped : this.droppedTasks.values()) {
+            total += dropped;
+        }
+        return total;
+    }
+    
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+    
+    public boolean isClean() {
+        return this.missedDeadline.isEmpty() && this.getTotalDroppedTasks() == 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "{missedDeadline=" + this.missedDeadline + ", droppedTasks=" + this.droppedTasks + ", elapsed=" + this.elapsedNanos / 1000000L + "ms}";
+    }
+}
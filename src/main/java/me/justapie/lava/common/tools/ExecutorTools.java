@@ -1,9 +1,13 @@
 package me.justapie.lava.common.tools;
 
 import java.util.concurrent.TimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -11,6 +15,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 
 public class ExecutorTools
@@ -39,18 +44,167 @@ public class ExecutorTools
         }
     }
     
+    public static ExecutorShutdownReport shutdownExecutors(final Map<String, ? extends ExecutorService> executors, final ShutdownMode mode, final long timeout, final TimeUnit unit) {
+        final long startTime = System.nanoTime();
+        final long deadline = startTime + unit.toNanos(timeout);
+        final Map<String, Integer> droppedTasks = new LinkedHashMap<String, Integer>();
+        final List<String> missedDeadline = new ArrayList<String>();
+        ExecutorTools.log.debug("Shutting down {} executors in {} mode", (Object)executors.size(), (Object)mode);
+        for (final Map.Entry<String, ? extends ExecutorService> entry : executors.entrySet()) {
+            if (entry.getValue() != null) {
+                if (mode == ShutdownMode.IMMEDIATE) {
+                    addDropped(droppedTasks, entry.getKey(), entry.getValue().shutdownNow().size());
+                }
+                else {
+                    entry.getValue().shutdown();
+                }
+            }
+        }
+        final Map<String, ExecutorService> stragglers = new LinkedHashMap<String, ExecutorService>();
+        boolean interrupted = false;
+        for (final Map.Entry<String, ? extends ExecutorService> entry2 : executors.entrySet()) {
+            final ExecutorService executorService = (ExecutorService)entry2.getValue();
+            if (executorService == null) {
+                continue;
+            }
+            try {
+                if (!interrupted && executorService.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    continue;
+                }
+            }
+            catch (InterruptedException e) {
+                ExecutorTools.log.debug("Received an interruption while shutting down executor {}", (Object)entry2.getKey());
+                interrupted = true;
+            }
+            if (mode == ShutdownMode.DRAIN) {
+                addDropped(droppedTasks, entry2.getKey(), executorService.shutdownNow().size());
+                stragglers.put(entry2.getKey(), executorService);
+            }
+            else {
+                missedDeadline.add(entry2.getKey());
+            }
+        }
+        final long graceDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1000L);
+        for (final Map.Entry<String, ExecutorService> straggler : stragglers.entrySet()) {
+            try {
+                if (interrupted ? straggler.getValue().isTerminated() : straggler.getValue().awaitTermination(Math.max(0L, graceDeadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    continue;
+                }
+            }
+            catch (InterruptedException e2) {
+                ExecutorTools.log.debug("Received an interruption while shutting down executor {}", (Object)straggler.getKey());
+                interrupted = true;
+            }
+            missedDeadline.add(straggler.getKey());
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final ExecutorShutdownReport report = new ExecutorShutdownReport(missedDeadline, droppedTasks, System.nanoTime() - startTime);
+        if (!report.isClean()) {
+            ExecutorTools.log.warn("Executor shutdown did not complete cleanly: {}", (Object)report);
+        }
+        else {
+            ExecutorTools.log.debug("Executors successfully shut down in {} ms", (Object)(report.getElapsedNanos() / 1000000L));
+        }
+        return report;
+    }
+    
+    private static void addDropped(final Map<String, Integer> droppedTasks, final String description, final int dropped) {
+        if (dropped > 0) {
+            droppedTasks.merge(description, dropped, Integer::sum);
+        }
+    }
+    
     public static ThreadPoolExecutor createEagerlyScalingExecutor(final int coreSize, final int maximumSize, final long timeout, final int queueCapacity, final ThreadFactory threadFactory) {
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize, maximumSize, timeout, TimeUnit.MILLISECONDS, new EagerlyScalingTaskQueue(queueCapacity), threadFactory);
-        executor.setRejectedExecutionHandler(new EagerlyScalingRejectionHandler());
+        executor.setRejectedExecutionHandler(new EagerlyScalingRejectionHandler(getName(threadFactory)));
+        return executor;
+    }
+    
+    public static ThreadPoolExecutor createLockFreeEagerlyScalingExecutor(final int coreSize, final int maximumSize, final long timeout, final int queueCapacity, final ThreadFactory threadFactory) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize, maximumSize, timeout, TimeUnit.MILLISECONDS, ExecutorTools.createLockFreeTaskQueue(queueCapacity), threadFactory);
+        executor.setRejectedExecutionHandler(new EagerlyScalingRejectionHandler(getName(threadFactory)));
+        return executor;
+    }
+    
+    public static InstrumentedThreadPoolExecutor createInstrumentedEagerlyScalingExecutor(final int coreSize, final int maximumSize, final long timeout, final int queueCapacity, final String name, final ExecutorMetrics metrics) {
+        final InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(coreSize, maximumSize, timeout, TimeUnit.MILLISECONDS, ExecutorTools.createLockFreeTaskQueue(queueCapacity), new DaemonThreadFactory(name, metrics::onThreadExited), metrics);
+        executor.setRejectedExecutionHandler(new EagerlyScalingRejectionHandler(name));
         return executor;
     }
     
+    public static ExecutorService createVirtualThreadExecutor(final String name, final Runnable exitCallback, final int fallbackMaximumSize) {
+        final DaemonThreadFactory threadFactory = DaemonThreadFactory.builder(name).exitCallback(exitCallback).virtual(true).build();
+        if (threadFactory.isVirtual()) {
+            return VirtualThreads.newThreadPerTaskExecutor(threadFactory);
+        }
+        return createEagerlyScalingExecutor(0, fallbackMaximumSize, 10000L, Integer.MAX_VALUE, threadFactory);
+    }
+    
+    public static <K> KeyedSerialExecutor<K> createKeyedSerialExecutor(final Executor executor) {
+        return new KeyedSerialExecutor<K>(executor);
+    }
+    
+    public static BatchingExecutor createBatchingExecutor(final String name, final Executor executor, final int batchSize, final int capacity, final long maxDelay, final TimeUnit unit, final HashedWheelTimer timer) {
+        return new BatchingExecutor(name, executor, batchSize, capacity, maxDelay, unit, timer);
+    }
+    
+    public static OverloadAwareExecutor createOverloadAwareExecutor(final int coreSize, final int maximumSize, final long timeout, final int queueCapacity, final ThreadFactory threadFactory, final OverloadPolicy policy, final long waitTimeout, final TimeUnit unit) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize, maximumSize, timeout, TimeUnit.MILLISECONDS, ExecutorTools.createLockFreeTaskQueue(queueCapacity), threadFactory);
+        executor.setRejectedExecutionHandler(new OverloadRejectionHandler());
+        return new OverloadAwareExecutor(executor, policy, waitTimeout, unit);
+    }
+    
+    private static BlockingQueue<Runnable> createLockFreeTaskQueue(final int queueCapacity) {
+        if (queueCapacity > 1073741824) {
+            return new EagerlyScalingTaskQueue(queueCapacity);
+        }
+        return new LockFreeEagerlyScalingTaskQueue(queueCapacity);
+    }
+    
+    static boolean offerDirectly(final ThreadPoolExecutor executor, final Runnable task, final long timeoutNanos) throws InterruptedException {
+        final BlockingQueue<Runnable> queue = executor.getQueue();
+        final boolean offered = (queue instanceof DirectOfferQueue) ? ((DirectOfferQueue)queue).offerDirectly(task, timeoutNanos, TimeUnit.NANOSECONDS) : queue.offer(task, timeoutNanos, TimeUnit.NANOSECONDS);
+        if (!offered) {
+            return false;
+        }
+        if ((executor.isShutdown() || executor.getPoolSize() == 0) && executor.remove(task)) {
+            if (executor.isShutdown()) {
+                return false;
+            }
+            executor.execute(task);
+        }
+        return true;
+    }
+    
+    private static String getName(final ThreadFactory threadFactory) {
+        return (threadFactory instanceof DaemonThreadFactory) ? ((DaemonThreadFactory)threadFactory).getName() : threadFactory.getClass().getSimpleName();
+    }
+    
+    private static BlockingQueue<Runnable> getWorkQueue(final ThreadPoolExecutor executor) {
+        return (executor instanceof InstrumentedThreadPoolExecutor) ? ((InstrumentedThreadPoolExecutor)executor).getWorkQueue() : executor.getQueue();
+    }
+    
     static {
         log = LoggerFactory.getLogger((Class)ExecutorTools.class);
         COMPLETED_VOID = new CompletedVoidFuture();
     }
     
-    private static class EagerlyScalingTaskQueue extends LinkedBlockingQueue<Runnable>
+    public enum ShutdownMode
+    {
+        IMMEDIATE, 
+        DRAIN;
+    }
+    
+    private interface DirectOfferQueue
+    {
+        boolean offerDirectly(final Runnable p0);
+        
+        boolean offerDirectly(final Runnable p0, final long p1, final TimeUnit p2) throws InterruptedException;
+    }
+    
+    private static class EagerlyScalingTaskQueue extends LinkedBlockingQueue<Runnable> implements DirectOfferQueue
     {
         public EagerlyScalingTaskQueue(final int capacity) {
             super(capacity);
@@ -61,17 +215,61 @@ public class ExecutorTools
             return this.isEmpty() && super.offer(runnable);
         }
         
+        @Override
         public boolean offerDirectly(final Runnable runnable) {
             return super.offer(runnable);
         }
+        
+        @Override
+        public boolean offerDirectly(final Runnable runnable, final long timeout, final TimeUnit unit) throws InterruptedException {
+            return super.offer(runnable, timeout, unit);
+        }
+    }
+    
+    private static class LockFreeEagerlyScalingTaskQueue extends MpmcArrayBlockingQueue<Runnable> implements DirectOfferQueue
+    {
+        public LockFreeEagerlyScalingTaskQueue(final int capacity) {
+            super(capacity);
+        }
+        
+        @Override
+        public boolean offer(final Runnable runnable) {
+            return this.getWaitingConsumers() > this.size() && super.offer(runnable);
+        }
+        
+        @Override
+        public boolean offerDirectly(final Runnable runnable) {
+            return super.offer(runnable);
+        }
+        
+        @Override
+        public boolean offerDirectly(final Runnable runnable, final long timeout, final TimeUnit unit) throws InterruptedException {
+            return super.offer(runnable, timeout, unit);
+        }
     }
     
     private static class EagerlyScalingRejectionHandler implements RejectedExecutionHandler
+    {
+        private final String message;
+        
+        private EagerlyScalingRejectionHandler(final String name) {
+            this.message = "Executor " + name + " is at capacity, task rejected.";
+        }
+        
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            if (!((DirectOfferQueue)getWorkQueue(executor)).offerDirectly(runnable)) {
+                throw new OverloadRejectedExecutionException(this.message);
+            }
+        }
+    }
+    
+    private static class OverloadRejectionHandler implements RejectedExecutionHandler
     {
         @Override
         public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
-            if (!((EagerlyScalingTaskQueue)executor.getQueue()).offerDirectly(runnable)) {
-                throw new RejectedExecutionException("Task " + runnable.toString() + " rejected from " + runnable.toString());
+            if ((executor.isShutdown() || !((DirectOfferQueue)getWorkQueue(executor)).offerDirectly(runnable)) && !OverloadAwareExecutor.recordRejection()) {
+                throw new OverloadRejectedExecutionException();
             }
         }
     }
@@ -0,0 +1,272 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+
+public class HashedWheelTimer
+{
+    private static final Logger log;
+    private static final int TRANSFER_LIMIT = 100000;
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor callbackExecutor;
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts;
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts;
+    private final AtomicLong pendingCount;
+    private final ExecutorService worker;
+    private final long startTime;
+    private volatile boolean stopped;
+    private volatile Set<Timeout> unprocessedTimeouts;
+    
+    public HashedWheelTimer(final String name, final long tickDuration, final TimeUnit unit, final int wheelSize, final Executor callbackExecutor) {
+        if (tickDuration <= 0L || wheelSize <= 0 || wheelSize > 1073741824) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive.");
+        }
+        this.name = name;
+        this.tickNanos = Math.max(unit.toNanos(tickDuration), 1000000L);
+        final int normalizedSize = (wheelSize == 1) ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[normalizedSize];
+        for (int i = 0; i < normalizedSize; ++i) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = normalizedSize - 1;
+        this.callbackExecutor = callbackExecutor;
+        this.pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+        this.cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+        this.pendingCount = new AtomicLong();
+        this.startTime = System.nanoTime();
+        this.worker = Executors.newSingleThreadExecutor(new DaemonThreadFactory("timer-" + name));
+        this.worker.execute(this::run);
+    }
+    
+    public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        if (this.stopped) {
+            throw new RejectedExecutionException("Timer " + this.name + " has been shut down.");
+        }
+        final long elapsed = System.nanoTime() - this.startTime;
+        final long delayNanos = unit.toNanos(Math.max(delay, 0L));
+        final Timeout timeout = new Timeout(this, task, (delayNanos > Long.MAX_VALUE - elapsed) ? Long.MAX_VALUE : (elapsed + delayNanos));
+        this.pendingCount.incrementAndGet();
+        this.pendingTimeouts.add(timeout);
+        return timeout;
+    }
+    
+    public long getPendingCount() {
+        return this.pendingCount.get();
+    }
+    
+    public Set<Timeout> shutdown() {
+        this.stopped = true;
+        ExecutorTools.shutdownExecutor(this.worker, "timer " + this.name);
+        final Set<Timeout> unprocessed = new LinkedHashSet<Timeout>();
+        if (this.unprocessedTimeouts != null) {
+            unprocessed.addAll(this.unprocessedTimeouts);
+        }
+        else {
+            HashedWheelTimer.log.warn("Timer {} worker did not stop in time, wheel timeouts were not collected.", (Object)this.name);
+        }
+        this.collectPending(unprocessed);
+        return Collections.unmodifiableSet((Set<? extends Timeout>)unprocessed);
+    }
+    
+    private void run() {
+        try {
+            this.runTicks();
+        }
+        finally {
+            final Set<Timeout> unprocessed = new LinkedHashSet<Timeout>();
+            for (final Bucket bucket : this.wheel) {
+                bucket.clear(unprocessed);
+            }
+            this.collectPending(unprocessed);
+            this.unprocessedTimeouts = unprocessed;
+        }
+    }
+    
+    private void runTicks() {
+        long tick = 0L;
+        while (!this.stopped) {
+            final long deadline = this.tickNanos * (tick + 1L);
+            long sleepNanos;
+            while ((sleepNanos = deadline - (System.nanoTime() - this.startTime)) > 0L) {
+                try {
+                    Thread.sleep(sleepNanos / 1000000L, (int)(sleepNanos % 1000000L));
+                }
+                catch (InterruptedException e) {
+                    HashedWheelTimer.log.debug("Timer {} interrupted, stopping with {} pending timeouts.", (Object)this.name, (Object)this.pendingCount.get());
+                    return;
+                }
+            }
+            this.processCancelled();
+            this.transferPending(tick);
+            this.wheel[(int)(tick & (long)this.mask)].expire(deadline);
+            ++tick;
+        }
+    }
+    
+    private void transferPending(final long tick) {
+        for (int i = 0; i < 100000; ++i) {
+            final Timeout timeout = this.pendingTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.state.get() == 0) {
+                final long calculated = timeout.deadline / this.tickNanos;
+                timeout.remainingRounds = (calculated - tick) / this.wheel.length;
+                this.wheel[(int)(Math.max(calculated, tick) & (long)this.mask)].add(timeout);
+            }
+        }
+    }
+    
+    private void collectPending(final Set<Timeout> unprocessed) {
+        Timeout timeout;
+        while ((timeout = this.pendingTimeouts.poll()) != null) {
+            if (timeout.state.compareAndSet(0, 1)) {
+                this.pendingCount.decrementAndGet();
+                unprocessed.add(timeout);
+            }
+        }
+    }
+    
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = this.cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+    
+    private void fire(final Timeout timeout) {
+        try {
+            this.callbackExecutor.execute(timeout.task);
+        }
+        catch (RejectedExecutionException e) {
+            HashedWheelTimer.log.warn("Timer {} could not run expired task {}.", new Object[] { this.name, timeout.task, e });
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)HashedWheelTimer.class);
+    }
+    
+    public static class Timeout
+    {
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout previous;
+        
+        private Timeout(final HashedWheelTimer timer, final Runnable task, final long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+            this.state = new AtomicInteger();
+        }
+        
+        public boolean cancel() {
+            if (!this.state.compareAndSet(0, 1)) {
+                return false;
+            }
+            this.timer.pendingCount.decrementAndGet();
+            this.timer.cancelledTimeouts.add(this);
+            return true;
+        }
+        
+        public boolean isCancelled() {
+            return this.state.get() == 1;
+        }
+        
+        public boolean isExpired() {
+            return this.state.get() == 2;
+        }
+    }
+    
+    private class Bucket
+    {
+        private Timeout head;
+        private Timeout tail;
+        
+        private void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if (this.head == null) {
+                this.tail = timeout;
+                this.head = timeout;
+            }
+            else {
+                this.tail.next = timeout;
+                timeout.previous = this.tail;
+                this.tail = timeout;
+            }
+        }
+        
+        private void remove(final Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            }
+            else {
+                this.head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            else {
+                this.tail = timeout.previous;
+            }
+            timeout.next = null;
+            timeout.previous = null;
+            timeout.bucket = null;
+        }
+        
+        private void clear(final Set<Timeout> unprocessed) {
+            Timeout timeout;
+            while ((timeout = this.head) != null) {
+                this.remove(timeout);
+                if (timeout.state.compareAndSet(0, 1)) {
+                    HashedWheelTimer.this.pendingCount.decrementAndGet();
+                    unprocessed.add(timeout);
+                }
+            }
+        }
+        
+        private void expire(final long deadline) {
+            Timeout timeout = this.head;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0L) {
+                    if (timeout.deadline <= deadline) {
+                        this.remove(timeout);
+                        if (timeout.state.compareAndSet(0, 2)) {
+                            HashedWheelTimer.this.pendingCount.decrementAndGet();
+                            HashedWheelTimer.this.fire(timeout);
+                        }
+                    }
+                }
+                else {
+                    --timeout.remainingRounds;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package me.justapie.lava.common.tools;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor
+{
+    private final ExecutorMetrics metrics;
+    private final BlockingQueue<Runnable> queueView;
+    
+    public InstrumentedThreadPoolExecutor(final int coreSize, final int maximumSize, final long timeout, final TimeUnit unit, final BlockingQueue<Runnable> queue, final ThreadFactory threadFactory, final ExecutorMetrics metrics) {
+        super(coreSize, maximumSize, timeout, unit, queue, countingFactory(threadFactory, metrics));
+        this.metrics = metrics;
+        this.queueView = new UnwrappingQueue(queue);
+        this.setRejectedExecutionHandler(this.getRejectedExecutionHandler());
+    }
+    
+    public ExecutorMetrics getMetrics() {
+        return this.metrics;
+    }
+    
+    @Override
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        this.metrics.onSubmitted();
+        super.execute(new TimedTask(command, System.nanoTime()));
+    }
+    
+    @Override
+    public BlockingQueue<Runnable> getQueue() {
+        return this.queueView;
+    }
+    
+    BlockingQueue<Runnable> getWorkQueue() {
+        return super.getQueue();
+    }
+    
+    @Override
+    public boolean remove(final Runnable task) {
+        for (final Runnable queued : super.getQueue()) {
+            if (unwrap(queued) == task) {
+                return super.remove(queued);
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public void purge() {
+        final Iterator<Runnable> iterator = super.getQueue().iterator();
+        while (iterator.hasNext()) {
+            final Runnable task = unwrap(iterator.next());
+            if (task instanceof Future && ((Future<?>)task).isCancelled()) {
+                iterator.remove();
+            }
+        }
+        super.purge();
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> pending = super.shutdownNow();
+        final List<Runnable> unwrapped = new ArrayList<Runnable>(pending.size());
+        for (final Runnable task : pending) {
+            unwrapped.add(unwrap(task));
+        }
+        return unwrapped;
+    }
+    
+    @Override
+    public void setRejectedExecutionHandler(final RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new CountingRejectionHandler(handler, this.metrics));
+    }
+    
+    private static Runnable unwrap(final Runnable runnable) {
+        return (runnable instanceof TimedTask) ? ((TimedTask)runnable).task : runnable;
+    }
+    
+    private static ThreadFactory countingFactory(final ThreadFactory threadFactory, final ExecutorMetrics metrics) {
+        return runnable -> {
+            final Thread thread = threadFactory.newThread(runnable);
+            if (thread != null) {
+                metrics.onThreadCreated();
+            }
+            return thread;
+        };
+    }
+    
+    private class TimedTask implements Runnable
+    {
+        private final Runnable task;
+        private final long submittedAt;
+        
+        private TimedTask(final Runnable task, final long submittedAt) {
+            this.task = task;
+            this.submittedAt = submittedAt;
+        }
+        
+        @Override
+        public void run() {
+            final long startTime = System.nanoTime();
+            InstrumentedThreadPoolExecutor.this.metrics.onStarted(startTime - this.submittedAt);
+            boolean success = false;
+            try {
+                this.task.run();
+                success = true;
+            }
+            finally {
+                InstrumentedThreadPoolExecutor.this.metrics.onFinished(System.nanoTime() - startTime, success);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return this.task.toString();
+        }
+    }
+    
+    private class UnwrappingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable>
+    {
+        private final BlockingQueue<Runnable> queue;
+        
+        private UnwrappingQueue(final BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+        
+        private Runnable wrap(final Runnable runnable) {
+            if (runnable == null) {
+                throw new NullPointerException();
+            }
+            return new TimedTask(runnable, System.nanoTime());
+        }
+        
+        @Override
+        public Iterator<Runnable> iterator() {
+            final Iterator<Runnable> iterator = this.queue.iterator();
+            return new Iterator<Runnable>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+                
+                @Override
+                public Runnable next() {
+                    return InstrumentedThreadPoolExecutor.unwrap(iterator.next());
+                }
+                
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+        
+        @Override
+        public int size() {
+            return this.queue.size();
+        }
+        
+        @Override
+        public boolean remove(final Object object) {
+            final Iterator<Runnable> iterator = this.queue.iterator();
+            while (iterator.hasNext()) {
+                final Runnable queued = iterator.next();
+                if (queued.equals(object) || InstrumentedThreadPoolExecutor.unwrap(queued).equals(object)) {
+                    return this.queue.remove(queued);
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public boolean offer(final Runnable runnable) {
+            return this.queue.offer(this.wrap(runnable));
+        }
+        
+        @Override
+        public Runnable poll() {
+            final Runnable runnable = this.queue.poll();
+            return (runnable != null) ? InstrumentedThreadPoolExecutor.unwrap(runnable) : null;
+        }
+        
+        @Override
+        public Runnable peek() {
+            final Runnable runnable = this.queue.peek();
+            return (runnable != null) ? InstrumentedThreadPoolExecutor.unwrap(runnable) : null;
+        }
+        
+        @Override
+        public void put(final Runnable runnable) throws InterruptedException {
+            this.queue.put(this.wrap(runnable));
+        }
+        
+        @Override
+        public boolean offer(final Runnable runnable, final long timeout, final TimeUnit unit) throws InterruptedException {
+            return this.queue.offer(this.wrap(runnable), timeout, unit);
+        }
+        
+        @Override
+        public Runnable take() throws InterruptedException {
+            return InstrumentedThreadPoolExecutor.unwrap(this.queue.take());
+        }
+        
+        @Override
+        public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final Runnable runnable = this.queue.poll(timeout, unit);
+            return (runnable != null) ? InstrumentedThreadPoolExecutor.unwrap(runnable) : null;
+        }
+        
+        @Override
+        public int remainingCapacity() {
+            return this.queue.remainingCapacity();
+        }
+        
+        @Override
+        public int drainTo(final Collection<? super Runnable> collection) {
+            return this.drainTo(collection, Integer.MAX_VALUE);
+        }
+        
+        @Override
+        public int drainTo(final Collection<? super Runnable> collection, final int maxElements) {
+            if (collection == this) {
+                throw new IllegalArgumentException();
+            }
+            int drained = 0;
+            Runnable runnable;
+            while (drained < maxElements && (runnable = this.queue.poll()) != null) {
+                collection.add(InstrumentedThreadPoolExecutor.unwrap(runnable));
+                ++drained;
+            }
+            return drained;
+        }
+    }
+    
+    private static class CountingRejectionHandler implements RejectedExecutionHandler
+    {
+        private final RejectedExecutionHandler delegate;
+        private final ExecutorMetrics metrics;
+        
+        private CountingRejectionHandler(final RejectedExecutionHandler delegate, final ExecutorMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+        
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            try {
+                this.delegate.rejectedExecution(runnable, executor);
+            }
+            catch (RejectedExecutionException e) {
+                this.metrics.onRejected();
+                throw e;
+            }
+        }
+    }
+}
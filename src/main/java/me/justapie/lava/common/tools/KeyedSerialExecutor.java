@@ -0,0 +1,141 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executor;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+
+public class KeyedSerialExecutor<K>
+{
+    private static final Logger log;
+    private final Executor executor;
+    private final int batchSize;
+    private final ConcurrentHashMap<K, KeyQueue> queues;
+    
+    public KeyedSerialExecutor(final Executor executor) {
+        this(executor, 64);
+    }
+    
+    public KeyedSerialExecutor(final Executor executor, final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.queues = new ConcurrentHashMap<K, KeyQueue>();
+    }
+    
+    public void execute(final K key, final Runnable task) {
+        if (key == null || task == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            final KeyQueue queue = this.queues.computeIfAbsent(key, KeyQueue::new);
+            queue.tasks.add(task);
+            queue.pending.incrementAndGet();
+            if (queue.tryStart()) {
+                this.schedule(queue);
+                return;
+            }
+            if (queue.state.get() >= 0 || !queue.tasks.remove(task)) {
+                return;
+            }
+            queue.pending.decrementAndGet();
+            this.queues.remove(key, queue);
+        }
+    }
+    
+    public int getQueueDepth(final K key) {
+        final KeyQueue queue = this.queues.get(key);
+        return (queue != null) ? Math.max(0, queue.pending.get()) : 0;
+    }
+    
+    public Map<K, Integer> getQueueDepths() {
+        final Map<K, Integer> depths = new HashMap<K, Integer>();
+        for (final KeyQueue queue : this.queues.values()) {
+            final int depth = queue.pending.get();
+            if (depth > 0) {
+                depths.put(queue.key, depth);
+            }
+        }
+        return depths;
+    }
+    
+    public int getActiveKeyCount() {
+        return this.queues.size();
+    }
+    
+    private void schedule(final KeyQueue queue) {
+        if (!this.trySchedule(queue)) {
+            KeyedSerialExecutor.log.debug("Executor rejected drain for key {}, running it in the calling thread.", (Object)queue.key);
+            queue.run();
+        }
+    }
+    
+    private boolean trySchedule(final KeyQueue queue) {
+        try {
+            this.executor.execute(queue);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)KeyedSerialExecutor.class);
+    }
+    
+    private class KeyQueue implements Runnable
+    {
+        private final K key;
+        private final ConcurrentLinkedQueue<Runnable> tasks;
+        private final AtomicInteger pending;
+        private final AtomicInteger state;
+        
+        private KeyQueue(final K key) {
+            this.key = key;
+            this.tasks = new ConcurrentLinkedQueue<Runnable>();
+            this.pending = new AtomicInteger();
+            this.state = new AtomicInteger();
+        }
+        
+        private boolean tryStart() {
+            return this.state.get() == 0 && this.state.compareAndSet(0, 1);
+        }
+        
+        @Override
+        public void run() {
+            do {
+                for (int processed = 0; processed < KeyedSerialExecutor.this.batchSize; ++processed) {
+                    final Runnable task = this.tasks.poll();
+                    if (task == null) {
+                        this.state.set(0);
+                        if (this.tasks.isEmpty()) {
+                            if (this.state.compareAndSet(0, -1)) {
+                                KeyedSerialExecutor.this.queues.remove(this.key, this);
+                            }
+                            return;
+                        }
+                        if (!this.tryStart()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    try {
+                        task.run();
+                    }
+                    catch (Throwable e) {
+                        KeyedSerialExecutor.log.error("Task for key {} threw an exception.", (Object)this.key, (Object)e);
+                    }
+                    this.pending.decrementAndGet();
+                }
+            } while (!KeyedSerialExecutor.this.trySchedule(this));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 8;
+    private static final int BUCKET_COUNT = 488;
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+    
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(488);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+    
+    public void record(final long value) {
+        final long clamped = Math.max(0L, value);
+        this.counts.incrementAndGet(bucketIndex(clamped));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(clamped);
+        long current;
+        while (clamped > (current = this.max.get()) && !this.max.compareAndSet(current, clamped)) {}
+    }
+    
+    public Snapshot snapshot() {
+        final long[] bucketCounts = new long[488];
+        for (int i = 0; i < bucketCounts.length; ++i) {
+            bucketCounts[i] = this.counts.get(i);
+        }
+        return new Snapshot(bucketCounts, this.count.get(), this.sum.get(), this.max.get());
+    }
+    
+    static int bucketIndex(final long value) {
+        if (value < 8L) {
+            return (int)value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int)(value >>> exponent - 3) & 0x7;
+        return (exponent - 2) * 8 + subBucket;
+    }
+    
+    static long bucketUpperBound(final int index) {
+        if (index < 8) {
+            return index;
+        }
+        final int exponent = index / 8 + 2;
+        final long lowerBound = (long)(8 + index % 8) << exponent - 3;
+        return lowerBound + (1L << exponent - 3) - 1L;
+    }
+    
+    public static class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+        
+        private Snapshot(final long[] counts, final long count, final long sum, final long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+        
+        public Snapshot since(final Snapshot previous) {
+            final long[] bucketCounts = new long[this.counts.length];
+            long maximum = 0L;
+            for (int i = 0; i < bucketCounts.length; ++i) {
+                bucketCounts[i] = this.counts[i] - previous.counts[i];
+                if (bucketCounts[i] > 0L) {
+                    maximum = Math.min(LatencyHistogram.bucketUpperBound(i), this.max);
+                }
+            }
+            return new Snapshot(bucketCounts, this.count - previous.count, this.sum - previous.sum, maximum);
+        }
+        
+        public long getCount() {
+            return this.count;
+        }
+        
+        public long getSum() {
+            return this.sum;
+        }
+        
+        public long getMax() {
+            return this.max;
+        }
+        
+        public double getMean() {
+            return (this.count == 0L) ? 0.0 : (this.sum / (double)this.count);
+        }
+        
+        public long getValueAtPercentile(final double percentile) {
+            long total = 0L;
+            for (final long bucketCount : this.counts) {
+                total += bucketCount;
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            final long target = Math.max(1L, (long)Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+            long seen = 0L;
+            for (int i = 0; i < this.counts.length; ++i) {
+                seen += this.counts[i];
+                if (seen >= target) {
+                    return Math.min(LatencyHistogram.bucketUpperBound(i), this.max);
+                }
+            }
+            return this.max;
+        }
+        
+        @Override
+        public String toString() {
+            return "{count=" + this.count + ", mean=" + (long)this.getMean() + ", p50=" + this.getValueAtPercentile(50.0) + ", p90=" + this.getValueAtPercentile(90.0) + ", p99=" + this.getValueAtPercentile(99.0) + ", max=" + this.max + "}";
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package me.justapie.lava.common.tools;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.AbstractQueue;
+
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    public static final int MAXIMUM_CAPACITY = 1073741824;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+    private final AtomicInteger takeWaiters;
+    private final AtomicInteger putWaiters;
+    private final AtomicInteger removed;
+    private final ConcurrentLinkedQueue<Waiter> notEmptyWaiters;
+    private final ConcurrentLinkedQueue<Waiter> notFullWaiters;
+    
+    public MpmcArrayBlockingQueue(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        if (capacity > 1073741824) {
+            throw new IllegalArgumentException("Capacity " + capacity + " exceeds the maximum of 1073741824.");
+        }
+        final int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.elements = new AtomicReferenceArray<E>(size);
+        for (int i = 0; i < size; ++i) {
+            this.sequences.set(i, i);
+        }
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+        this.takeWaiters = new AtomicInteger();
+        this.putWaiters = new AtomicInteger();
+        this.removed = new AtomicInteger();
+        this.notEmptyWaiters = new ConcurrentLinkedQueue<Waiter>();
+        this.notFullWaiters = new ConcurrentLinkedQueue<Waiter>();
+    }
+    
+    @Override
+    public boolean offer(final E element) {
+        return this.offerElement(element);
+    }
+    
+    private boolean offerElement(final E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        if (!this.enqueue(element)) {
+            return false;
+        }
+        if (this.takeWaiters.get() > 0) {
+            MpmcArrayBlockingQueue.signal(this.notEmptyWaiters);
+        }
+        return true;
+    }
+    
+    @Override
+    public E poll() {
+        final E element = this.dequeue();
+        if (element != null && this.putWaiters.get() > 0) {
+            MpmcArrayBlockingQueue.signal(this.notFullWaiters);
+        }
+        return element;
+    }
+    
+    @Override
+    public E peek() {
+        final long end = this.tail.get();
+        for (long position = this.head.get(); position < end; ++position) {
+            final int index = (int)position & this.mask;
+            if (this.sequences.get(index) == position + 1L) {
+                final E element = this.elements.get(index);
+                if (element != null) {
+                    return element;
+                }
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public void put(final E element) throws InterruptedException {
+        this.offer(element, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+    
+    @Override
+    public boolean offer(final E element, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (this.offerElement(element)) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            final Waiter waiter = new Waiter();
+            this.putWaiters.incrementAndGet();
+            this.notFullWaiters.offer(waiter);
+            boolean offered = false;
+            try {
+                offered = this.offerElement(element);
+                if (!offered) {
+                    LockSupport.parkNanos(this, remaining);
+                    offered = this.offerElement(element);
+                }
+            }
+            finally {
+                this.putWaiters.decrementAndGet();
+                if (!waiter.cancel(this.notFullWaiters) && offered && this.remainingCapacity() > 0) {
+                    MpmcArrayBlockingQueue.signal(this.notFullWaiters);
+                }
+            }
+            if (offered) {
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public E take() throws InterruptedException {
+        return this.poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+    
+    @Override
+    public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        E element = this.poll();
+        if (element != null) {
+            return element;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return null;
+            }
+            final Waiter waiter = new Waiter();
+            this.takeWaiters.incrementAndGet();
+            this.notEmptyWaiters.offer(waiter);
+            try {
+                element = this.poll();
+                if (element == null) {
+                    LockSupport.parkNanos(this, remaining);
+                    element = this.poll();
+                }
+            }
+            finally {
+                this.takeWaiters.decrementAndGet();
+                if (!waiter.cancel(this.notEmptyWaiters) && element != null && !this.isEmpty()) {
+                    MpmcArrayBlockingQueue.signal(this.notEmptyWaiters);
+                }
+            }
+            if (element != null) {
+                return element;
+            }
+        }
+    }
+    
+    public int getWaitingConsumers() {
+        return this.takeWaiters.get();
+    }
+    
+    @Override
+    public int remainingCapacity() {
+        return this.capacity - this.size();
+    }
+    
+    @Override
+    public int drainTo(final Collection<? super E> collection) {
+        return this.drainTo(collection, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public int drainTo(final Collection<? super E> collection, final int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = this.poll()) != null) {
+            collection.add(element);
+            ++drained;
+        }
+        return drained;
+    }
+    
+    @Override
+    public int size() {
+        while (true) {
+            final long currentHead = this.head.get();
+            final long currentTail = this.tail.get();
+            if (currentHead == this.head.get()) {
+                return (int)Math.max(0L, Math.min(this.capacity, currentTail - currentHead - this.removed.get()));
+            }
+        }
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        final long end = this.tail.get();
+        for (long position = this.head.get(); position < end; ++position) {
+            final int index = (int)position & this.mask;
+            if (this.sequences.get(index) != position + 1L || this.elements.get(index) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean remove(final Object object) {
+        if (object == null) {
+            return false;
+        }
+        final long end = this.tail.get();
+        for (long position = this.head.get(); position < end; ++position) {
+            final int index = (int)position & this.mask;
+            final E element = this.elements.get(index);
+            if (element != null && this.sequences.get(index) == position + 1L && object.equals(element) && this.elements.compareAndSet(index, element, null)) {
+                this.removed.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public Iterator<E> iterator() {
+        final List<E> snapshot = new ArrayList<E>();
+        final List<Integer> indexes = new ArrayList<Integer>();
+        final long end = this.tail.get();
+        for (long position = this.head.get(); position < end; ++position) {
+            final int index = (int)position & this.mask;
+            if (this.sequences.get(index) == position + 1L) {
+                final E element = this.elements.get(index);
+                if (element != null) {
+                    snapshot.add(element);
+                    indexes.add(index);
+                }
+            }
+        }
+        return new Iterator<E>() {
+            private int cursor;
+            private int last = -1;
+            
+            @Override
+            public boolean hasNext() {
+                return this.cursor < snapshot.size();
+            }
+            
+            @Override
+            public E next() {
+                if (this.cursor >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                this.last = this.cursor++;
+                return snapshot.get(this.last);
+            }
+            
+            @Override
+            public void remove() {
+                if (this.last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (MpmcArrayBlockingQueue.this.elements.compareAndSet(indexes.get(this.last), snapshot.get(this.last), null)) {
+                    MpmcArrayBlockingQueue.this.removed.incrementAndGet();
+                }
+                this.last = -1;
+            }
+        };
+    }
+    
+    private boolean enqueue(final E element) {
+        long position = this.tail.get();
+        int index;
+        while (true) {
+            index = ((int)position & this.mask);
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0L) {
+                if (position - this.head.get() >= this.capacity) {
+                    return false;
+                }
+                if (this.tail.compareAndSet(position, position + 1L)) {
+                    break;
+                }
+                position = this.tail.get();
+            }
+            else {
+                if (difference < 0L) {
+                    return false;
+                }
+                position = this.tail.get();
+            }
+        }
+        this.elements.lazySet(index, element);
+        this.sequences.set(index, position + 1L);
+        return true;
+    }
+    
+    private E dequeue() {
+        while (true) {
+            long position = this.head.get();
+            int index;
+            while (true) {
+                index = ((int)position & this.mask);
+                final long difference = this.sequences.get(index) - (position + 1L);
+                if (difference == 0L) {
+                    if (this.head.compareAndSet(position, position + 1L)) {
+                        break;
+                    }
+                    position = this.head.get();
+                }
+                else {
+                    if (difference < 0L) {
+                        return null;
+                    }
+                    position = this.head.get();
+                }
+            }
+            final E element = this.elements.getAndSet(index, null);
+            this.sequences.set(index, position + this.mask + 1L);
+            if (element != null) {
+                return element;
+            }
+            this.removed.decrementAndGet();
+        }
+    }
+    
+    private static void signal(final ConcurrentLinkedQueue<Waiter> waiters) {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.signal()) {
+                return;
+            }
+        }
+    }
+    
+    private static class Waiter
+    {
+        private final Thread thread;
+        private final AtomicBoolean done;
+        
+        private Waiter() {
+            this.thread = Thread.currentThread();
+            this.done = new AtomicBoolean();
+        }
+        
+        private boolean signal() {
+            if (this.done.compareAndSet(false, true)) {
+                LockSupport.unpark(this.thread);
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean cancel(final ConcurrentLinkedQueue<Waiter> waiters) {
+            if (this.done.compareAndSet(false, true)) {
+                waiters.remove(this);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.List;
+
+public class OverloadAwareExecutor extends AbstractExecutorService
+{
+    private static final ThreadLocal<SubmitState> submitState;
+    private final ThreadPoolExecutor executor;
+    private final OverloadPolicy defaultPolicy;
+    private final long waitNanos;
+    private final AtomicLongArray outcomes;
+    private final AtomicLongArray rejections;
+    private final AtomicLong shedTasks;
+    
+    public OverloadAwareExecutor(final ThreadPoolExecutor executor, final OverloadPolicy defaultPolicy, final long waitTimeout, final TimeUnit unit) {
+        this.executor = executor;
+        this.defaultPolicy = defaultPolicy;
+        this.waitNanos = unit.toNanos(waitTimeout);
+        this.outcomes = new AtomicLongArray(SubmitResult.values().length);
+        this.rejections = new AtomicLongArray(OverloadPolicy.values().length);
+        this.shedTasks = new AtomicLong();
+    }
+    
+    public SubmitResult trySubmit(final Runnable task) {
+        return this.trySubmit(task, this.defaultPolicy);
+    }
+    
+    public SubmitResult trySubmit(final Runnable task, final OverloadPolicy policy) {
+        final SubmitResult result = this.submitWithPolicy(task, policy);
+        this.outcomes.incrementAndGet(result.ordinal());
+        if (result == SubmitResult.REJECTED) {
+            this.rejections.incrementAndGet(policy.ordinal());
+        }
+        return result;
+    }
+    
+    @Override
+    public void execute(final Runnable command) {
+        if (this.trySubmit(command) == SubmitResult.REJECTED) {
+            throw new OverloadRejectedExecutionException();
+        }
+    }
+    
+    public long getOutcomeCount(final SubmitResult result) {
+        return this.outcomes.get(result.ordinal());
+    }
+    
+    public long getRejectionCount(final OverloadPolicy policy) {
+        return this.rejections.get(policy.ordinal());
+    }
+    
+    public long getShedTaskCount() {
+        return this.shedTasks.get();
+    }
+    
+    public ThreadPoolExecutor getExecutor() {
+        return this.executor;
+    }
+    
+    @Override
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        return this.executor.shutdownNow();
+    }
+    
+    @Override
+    public boolean isShutdown() {
+        return this.executor.isShutdown();
+    }
+    
+    @Override
+    public boolean isTerminated() {
+        return this.executor.isTerminated();
+    }
+    
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+    
+    private SubmitResult submitWithPolicy(final Runnable task, final OverloadPolicy policy) {
+        if (this.tryExecute(task)) {
+            return SubmitResult.ACCEPTED;
+        }
+        if (this.executor.isShutdown()) {
+            return SubmitResult.REJECTED;
+        }
+        switch (policy) {
+            case WAIT: {
+                return this.waitAndExecute(task);
+            }
+            case CALLER_RUNS: {
+                task.run();
+                return SubmitResult.RAN_IN_CALLER;
+            }
+            case SHED_OLDEST: {
+                final Runnable oldest = this.executor.getQueue().poll();
+                if (oldest != null) {
+                    this.shedTasks.incrementAndGet();
+                    if (oldest instanceof Future) {
+                        ((Future)oldest).cancel(false);
+                    }
+                }
+                return this.tryExecute(task) ? SubmitResult.ACCEPTED_AFTER_SHED : SubmitResult.REJECTED;
+            }
+            default: {
+                return SubmitResult.REJECTED;
+            }
+        }
+    }
+    
+    private SubmitResult waitAndExecute(final Runnable task) {
+        try {
+            return ExecutorTools.offerDirectly(this.executor, task, this.waitNanos) ? SubmitResult.ACCEPTED_AFTER_WAIT : SubmitResult.REJECTED;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SubmitResult.REJECTED;
+        }
+        catch (RejectedExecutionException e) {
+            return SubmitResult.REJECTED;
+        }
+    }
+    
+    private boolean tryExecute(final Runnable task) {
+        final SubmitState state = OverloadAwareExecutor.submitState.get();
+        final boolean outer = state.active;
+        state.active = true;
+        state.rejected = false;
+        try {
+            this.executor.execute(task);
+            return !state.rejected;
+        }
+        catch (RejectedExecutionException e) {
+            return false;
+        }
+        finally {
+            state.active = outer;
+            state.rejected = false;
+        }
+    }
+    
+    static boolean recordRejection() {
+        final SubmitState state = OverloadAwareExecutor.submitState.get();
+        if (!state.active) {
+            return false;
+        }
+        state.rejected = true;
+        return true;
+    }
+    
+    static {
+        submitState = ThreadLocal.withInitial(SubmitState::new);
+    }
+    
+    private static class SubmitState
+    {
+        private boolean active;
+        private boolean rejected;
+    }
+}
@@ -0,0 +1,9 @@
+package me.justapie.lava.common.tools;
+
+public enum OverloadPolicy
+{
+    ABORT, 
+    WAIT, 
+    CALLER_RUNS, 
+    SHED_OLDEST;
+}
@@ -0,0 +1,21 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.RejectedExecutionException;
+
+public class OverloadRejectedExecutionException extends RejectedExecutionException
+{
+    private static final long serialVersionUID = 1L;
+    
+    public OverloadRejectedExecutionException() {
+        super("Executor is overloaded, task rejected.");
+    }
+    
+    public OverloadRejectedExecutionException(final String message) {
+        super(message);
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,14 @@
+package me.justapie.lava.common.tools;
+
+public enum SubmitResult
+{
+    ACCEPTED, 
+    ACCEPTED_AFTER_WAIT, 
+    ACCEPTED_AFTER_SHED, 
+    RAN_IN_CALLER, 
+    REJECTED;
+    
+    public boolean isAccepted() {
+        return this != SubmitResult.REJECTED;
+    }
+}
@@ -0,0 +1,77 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.util.BitSet;
+import me.justapie.lava.common.natives.NativeLibraryLoader;
+import org.slf4j.Logger;
+
+public class ThreadAffinity
+{
+    private static final Logger log;
+    private static final NativeLibraryLoader nativeLoader;
+    private static volatile Boolean available;
+    
+    private ThreadAffinity() {
+    }
+    
+    public static boolean isAvailable() {
+        Boolean result = ThreadAffinity.available;
+        if (result == null) {
+            synchronized (ThreadAffinity.class) {
+                result = ThreadAffinity.available;
+                if (result == null) {
+                    result = (ThreadAffinity.available = loadNativeLibrary());
+                }
+            }
+        }
+        return result;
+    }
+    
+    public static boolean setCurrentThreadAffinity(final BitSet cpus) {
+        if (cpus.isEmpty() || !isAvailable()) {
+            return false;
+        }
+        final int error = setAffinity0(cpus.toLongArray());
+        if (error != 0) {
+            ThreadAffinity.log.debug("Setting affinity of thread {} to {} failed with error {}.", new Object[] { Thread.currentThread().getName(), cpus, error });
+            return false;
+        }
+        return true;
+    }
+    
+    public static BitSet getCurrentThreadAffinity() {
+        if (!isAvailable()) {
+            return null;
+        }
+        final long[] mask = getAffinity0();
+        return (mask != null) ? BitSet.valueOf(mask) : null;
+    }
+    
+    private static boolean loadNativeLibrary() {
+        if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+            ThreadAffinity.log.debug("Thread affinity is only supported on Linux, affinity settings are ignored.");
+            return false;
+        }
+        if (!ThreadAffinity.nativeLoader.isBinaryAvailable()) {
+            ThreadAffinity.log.debug("Thread affinity library is not available for this system, affinity settings are ignored.");
+            return false;
+        }
+        try {
+            ThreadAffinity.nativeLoader.load();
+            return ThreadAffinity.nativeLoader.isLoaded();
+        }
+        catch (Throwable e) {
+            ThreadAffinity.log.debug("Thread affinity library could not be loaded, affinity settings are ignored.", e);
+            return false;
+        }
+    }
+    
+    private static native int setAffinity0(final long[] p0);
+    
+    private static native long[] getAffinity0();
+    
+    static {
+        log = LoggerFactory.getLogger((Class)ThreadAffinity.class);
+        nativeLoader = NativeLibraryLoader.create(ThreadAffinity.class, "lava-affinity");
+    }
+}
@@ -0,0 +1,81 @@
+package me.justapie.lava.common.tools;
+
+import java.util.BitSet;
+
+public class ThreadAffinityPolicy
+{
+    private final BitSet cpus;
+    private final int[] cpuOrder;
+    private final boolean spread;
+    
+    private ThreadAffinityPolicy(final BitSet cpus, final boolean spread) {
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("CPU set must not be empty.");
+        }
+        this.cpus = (BitSet)cpus.clone();
+        this.cpuOrder = cpus.stream().toArray();
+        this.spread = spread;
+    }
+    
+    public static ThreadAffinityPolicy pin(final BitSet cpus) {
+        return new ThreadAffinityPolicy(cpus, false);
+    }
+    
+    public static ThreadAffinityPolicy pin(final String cpuList) {
+        return pin(parseCpuList(cpuList));
+    }
+    
+    public static ThreadAffinityPolicy spread(final BitSet cpus) {
+        return new ThreadAffinityPolicy(cpus, true);
+    }
+    
+    public static ThreadAffinityPolicy spread(final String cpuList) {
+        return spread(parseCpuList(cpuList));
+    }
+    
+    public BitSet getCpus(final int threadIndex) {
+        if (!this.spread) {
+            return (BitSet)this.cpus.clone();
+        }
+        final BitSet single = new BitSet();
+        single.set(this.cpuOrder[Math.floorMod(threadIndex, this.cpuOrder.length)]);
+        return single;
+    }
+    
+    public boolean apply(final int threadIndex) {
+        return ThreadAffinity.setCurrentThreadAffinity(this.getCpus(threadIndex));
+    }
+    
+    public static BitSet parseCpuList(final String cpuList) {
+        final BitSet cpus = new BitSet();
+        for (final String part : cpuList.split(",")) {
+            final String range = part.trim();
+            if (range.isEmpty()) {
+                continue;
+            }
+            try {
+                final int dash = range.indexOf('-');
+                if (dash < 0) {
+                    cpus.set(Integer.parseInt(range));
+                }
+                else {
+                    final int start = Integer.parseInt(range.substring(0, dash).trim());
+                    final int end = Integer.parseInt(range.substring(dash + 1).trim());
+                    if (start > end || start < 0) {
+                        throw new IllegalArgumentException("Invalid CPU range " + range + " in " + cpuList);
+                    }
+                    cpus.set(start, end + 1);
+                }
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid CPU list " + cpuList, e);
+            }
+        }
+        return cpus;
+    }
+    
+    @Override
+    public String toString() {
+        return (this.spread ? "spread" : "pin") + this.cpus;
+    }
+}
@@ -0,0 +1,241 @@
+package me.justapie.lava.common.tools;
+
+import org.slf4j.LoggerFactory;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.Map;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+
+public class ThreadPoolAccounting
+{
+    private static final Logger log;
+    private static final ConcurrentMap<String, ThreadPoolAccounting> pools;
+    private static final ThreadMXBean threadBean;
+    private static final boolean cpuTimeSupported;
+    private static final boolean allocationSupported;
+    private final String name;
+    private final Set<Thread> liveThreads;
+    private final AtomicLong exitedCpuNanos;
+    private final AtomicLong exitedAllocatedBytes;
+    private final AtomicLong threadsStarted;
+    private final AtomicLong threadsExited;
+    
+    private ThreadPoolAccounting(final String name) {
+        this.name = name;
+        this.liveThreads = ConcurrentHashMap.newKeySet();
+        this.exitedCpuNanos = new AtomicLong();
+        this.exitedAllocatedBytes = new AtomicLong();
+        this.threadsStarted = new AtomicLong();
+        this.threadsExited = new AtomicLong();
+    }
+    
+    public static ThreadPoolAccounting forPool(final String name) {
+        return ThreadPoolAccounting.pools.computeIfAbsent(name, ThreadPoolAccounting::new);
+    }
+    
+    public static Snapshot getPool(final String name) {
+        final ThreadPoolAccounting accounting = ThreadPoolAccounting.pools.get(name);
+        return (accounting != null) ? accounting.snapshot() : null;
+    }
+    
+    public static Map<String, Snapshot> getPools() {
+        final Map<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+        for (final ThreadPoolAccounting accounting : ThreadPoolAccounting.pools.values()) {
+            snapshots.put(accounting.name, accounting.snapshot());
+        }
+        return Collections.unmodifiableMap((Map<? extends String, ? extends Snapshot>)snapshots);
+    }
+    
+    public static boolean isCpuTimeSupported() {
+        return ThreadPoolAccounting.cpuTimeSupported;
+    }
+    
+    public static boolean isAllocationSupported() {
+        return ThreadPoolAccounting.allocationSupported;
+    }
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    void onThreadStarted() {
+        this.liveThreads.add(Thread.currentThread());
+        this.threadsStarted.incrementAndGet();
+    }
+    
+    void onThreadExited() {
+        final Thread thread = Thread.currentThread();
+        if (!this.liveThreads.remove(thread)) {
+            return;
+        }
+        final long cpuNanos = ThreadPoolAccounting.getCpuTime(thread);
+        if (cpuNanos > 0L) {
+            this.exitedCpuNanos.addAndGet(cpuNanos);
+        }
+        final long allocatedBytes = ThreadPoolAccounting.getAllocatedBytes(thread);
+        if (allocatedBytes > 0L) {
+            this.exitedAllocatedBytes.addAndGet(allocatedBytes);
+        }
+        this.threadsExited.incrementAndGet();
+    }
+    
+    Runnable wrapExitCallback(final Runnable exitCallback) {
+        if (exitCallback == null) {
+            return this::onThreadExited;
+        }
+        return () -> {
+            this.onThreadExited();
+            exitCallback.run();
+        };
+    }
+    
+    public Snapshot snapshot() {
+        final long exitedCount = this.threadsExited.get();
+        long cpuNanos = this.exitedCpuNanos.get();
+        long allocatedBytes = this.exitedAllocatedBytes.get();
+        int liveCount = 0;
+        for (final Thread thread : this.liveThreads) {
+            final long threadCpuNanos = ThreadPoolAccounting.getCpuTime(thread);
+            if (threadCpuNanos > 0L) {
+                cpuNanos += threadCpuNanos;
+            }
+            final long threadAllocatedBytes = ThreadPoolAccounting.getAllocatedBytes(thread);
+            if (threadAllocatedBytes > 0L) {
+                allocatedBytes += threadAllocatedBytes;
+            }
+            ++liveCount;
+        }
+        return new Snapshot(this.name, this.threadsStarted.get(), exitedCount, liveCount, cpuNanos, allocatedBytes);
+    }
+    
+    @Override
+    public String toString() {
+        return this.snapshot().toString();
+    }
+    
+    private static long getCpuTime(final Thread thread) {
+        if (!ThreadPoolAccounting.cpuTimeSupported) {
+            return -1L;
+        }
+        try {
+            return ThreadPoolAccounting.threadBean.getThreadCpuTime(thread.getId());
+        }
+        catch (UnsupportedOperationException e) {
+            return -1L;
+        }
+    }
+    
+    private static long getAllocatedBytes(final Thread thread) {
+        if (!ThreadPoolAccounting.allocationSupported) {
+            return -1L;
+        }
+        try {
+            return ((com.sun.management.ThreadMXBean)ThreadPoolAccounting.threadBean).getThreadAllocatedBytes(thread.getId());
+        }
+        catch (UnsupportedOperationException e) {
+            return -1L;
+        }
+    }
+    
+    private static boolean detectCpuTimeSupport() {
+        try {
+            if (!ThreadPoolAccounting.threadBean.isThreadCpuTimeSupported()) {
+                return false;
+            }
+            if (!ThreadPoolAccounting.threadBean.isThreadCpuTimeEnabled()) {
+                ThreadPoolAccounting.threadBean.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        }
+        catch (Throwable e) {
+            ThreadPoolAccounting.log.debug("Thread CPU time accounting is not available.", e);
+            return false;
+        }
+    }
+    
+    private static boolean detectAllocationSupport() {
+        try {
+            if (!(ThreadPoolAccounting.threadBean instanceof com.sun.management.ThreadMXBean)) {
+                return false;
+            }
+            final com.sun.management.ThreadMXBean extendedBean = (com.sun.management.ThreadMXBean)ThreadPoolAccounting.threadBean;
+            if (!extendedBean.isThreadAllocatedMemorySupported()) {
+                return false;
+            }
+            if (!extendedBean.isThreadAllocatedMemoryEnabled()) {
+                extendedBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return true;
+        }
+        catch (Throwable e) {
+            ThreadPoolAccounting.log.debug("Thread allocation accounting is not available.", e);
+            return false;
+        }
+    }
+    
+    static {
+        log = LoggerFactory.getLogger((Class)ThreadPoolAccounting.class);
+        pools = new ConcurrentHashMap<String, ThreadPoolAccounting>();
+        threadBean = ManagementFactory.getThreadMXBean();
+        cpuTimeSupported = ThreadPoolAccounting.detectCpuTimeSupport();
+        allocationSupported = ThreadPoolAccounting.detectAllocationSupport();
+    }
+    
+    public static class Snapshot
+    {
+        private final String name;
+        private final long threadsStarted;
+        private final long threadsExited;
+        private final int liveThreads;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        
+        private Snapshot(final String name, final long threadsStarted, final long threadsExited, final int liveThreads, final long cpuNanos, final long allocatedBytes) {
+            this.name = name;
+            this.threadsStarted = threadsStarted;
+            this.threadsExited = threadsExited;
+            this.liveThreads = liveThreads;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+        
+        public String getName() {
+            return this.name;
+        }
+        
+        public long getThreadsStarted() {
+            return this.threadsStarted;
+        }
+        
+        public long getThreadsExited() {
+            return this.threadsExited;
+        }
+        
+        public int getLiveThreads() {
+            return this.liveThreads;
+        }
+        
+        public long getCpuNanos() {
+            return this.cpuNanos;
+        }
+        
+        public long getAllocatedBytes() {
+            return this.allocatedBytes;
+        }
+        
+        public Snapshot since(final Snapshot previous) {
+            return new Snapshot(this.name, this.threadsStarted - previous.threadsStarted, this.threadsExited - previous.threadsExited, this.liveThreads, this.cpuNanos - previous.cpuNanos, this.allocatedBytes - previous.allocatedBytes);
+        }
+        
+        @Override
+        public String toString() {
+            return "pool=" + this.name + ", threads=" + this.liveThreads + " (started " + this.threadsStarted + ", exited " + this.threadsExited + "), cpu=" + this.cpuNanos / 1000000L + "ms, allocated=" + this.allocatedBytes + "B";
+        }
+    }
+}
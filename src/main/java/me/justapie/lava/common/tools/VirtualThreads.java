@@ -0,0 +1,22 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+public class VirtualThreads
+{
+    private VirtualThreads() {
+    }
+    
+    public static boolean isSupported() {
+        return false;
+    }
+    
+    public static Thread newThread(final String name, final Runnable runnable) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+    }
+    
+    public static ExecutorService newThreadPerTaskExecutor(final ThreadFactory threadFactory) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+    }
+}
@@ -0,0 +1,23 @@
+package me.justapie.lava.common.tools;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+public class VirtualThreads
+{
+    private VirtualThreads() {
+    }
+    
+    public static boolean isSupported() {
+        return true;
+    }
+    
+    public static Thread newThread(final String name, final Runnable runnable) {
+        return Thread.ofVirtual().name(name).unstarted(runnable);
+    }
+    
+    public static ExecutorService newThreadPerTaskExecutor(final ThreadFactory threadFactory) {
+        return Executors.newThreadPerTaskExecutor(threadFactory);
+    }
+}